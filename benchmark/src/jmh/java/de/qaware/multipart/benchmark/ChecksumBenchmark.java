@@ -0,0 +1,68 @@
+package de.qaware.multipart.benchmark;
+
+import de.qaware.multipart.common.BufferPool;
+import de.qaware.multipart.common.ByteBuffers;
+import de.qaware.multipart.common.FastInputStream;
+import de.qaware.multipart.common.PooledBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Checksum;
+
+/**
+ * CRC32 over a stream, once copied through a {@link CheckedOutputStream} as the server did originally
+ * and once updated directly from a pooled buffer as {@code NullStorageSink.store} does now through {@code PartDigest.offer}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ChecksumBenchmark {
+    @Param({"4096", "32768", "262144"})
+    int bufferSize;
+    @Param({"67108864"})
+    long streamSize;
+    @Param({"false", "true"})
+    boolean direct;
+
+    private BufferPool bufferPool;
+
+    @Setup
+    public void setUp() {
+        bufferPool = new BufferPool(16L * 1024 * 1024, 4 * 1024, 1024 * 1024, direct, Duration.ZERO);
+    }
+
+    @Benchmark
+    public long checkedOutputStream() throws IOException {
+        Checksum checksum = new CRC32();
+        InputStream inputStream = new FastInputStream(streamSize);
+        try (CheckedOutputStream checkedOutputStream = new CheckedOutputStream(OutputStream.nullOutputStream(), checksum)) {
+            byte[] buffer = new byte[bufferSize];
+            int n;
+            while ((n = inputStream.read(buffer, 0, buffer.length)) > 0) {
+                checkedOutputStream.write(buffer, 0, n);
+            }
+        }
+        return checksum.getValue();
+    }
+
+    @Benchmark
+    public long pooledByteBuffer() throws IOException, InterruptedException {
+        Checksum checksum = new CRC32();
+        InputStream inputStream = new FastInputStream(streamSize);
+        try (PooledBuffer pooledBuffer = bufferPool.acquire(bufferSize)) {
+            ByteBuffer buffer = pooledBuffer.buffer();
+            while (ByteBuffers.readFully(inputStream, buffer) > 0) {
+                checksum.update(buffer);
+                buffer.clear();
+            }
+        }
+        return checksum.getValue();
+    }
+}
@@ -0,0 +1,118 @@
+package de.qaware.multipart.benchmark;
+
+import de.qaware.multipart.common.multipart.MultipartParser;
+import de.qaware.multipart.common.multipart.PartHandler;
+import de.qaware.multipart.common.multipart.PartHeaders;
+import org.apache.tomcat.util.http.fileupload.MultipartStream;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the multipart parser of the common module with Tomcat's {@link MultipartStream}
+ * on bodies with few large and with many small parts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MultipartParserBenchmark {
+    private static final String BOUNDARY = "----BenchmarkBoundary7MA4YWxkTrZu0gW";
+
+    @Param({"1", "64", "16384"})
+    int numParts;
+    @Param({"67108864"})
+    int bodySize;
+    @Param({"8192", "65536"})
+    int chunkSize;
+
+    private byte[] body;
+
+    @Setup
+    public void setUp() throws IOException {
+        body = createBody(numParts, bodySize / numParts);
+    }
+
+    @Benchmark
+    public void multipartParser(Blackhole blackhole) throws IOException {
+        CountingPartHandler handler = new CountingPartHandler();
+        MultipartParser parser = new MultipartParser(BOUNDARY.getBytes(StandardCharsets.ISO_8859_1), handler);
+        for (int offset = 0; offset < body.length; offset += chunkSize) {
+            parser.feed(ByteBuffer.wrap(body, offset, Math.min(chunkSize, body.length - offset)));
+        }
+        parser.finish();
+        blackhole.consume(handler.numBytes);
+    }
+
+    @Benchmark
+    public void tomcatMultipartStream(Blackhole blackhole) throws IOException {
+        MultipartStream multipartStream = new MultipartStream(
+                new ByteArrayInputStream(body),
+                BOUNDARY.getBytes(StandardCharsets.ISO_8859_1),
+                chunkSize,
+                null
+        );
+        CountingOutputStream outputStream = new CountingOutputStream();
+        boolean hasNext = multipartStream.skipPreamble();
+        while (hasNext) {
+            blackhole.consume(multipartStream.readHeaders());
+            multipartStream.readBodyData(outputStream);
+            hasNext = multipartStream.readBoundary();
+        }
+        blackhole.consume(outputStream.numBytes);
+    }
+
+    static byte[] createBody(int numParts, int partSize) throws IOException {
+        Random random = new Random(42);
+        byte[] content = new byte[partSize];
+        ByteArrayOutputStream body = new ByteArrayOutputStream(numParts * (partSize + 128));
+        for (int i = 0; i < numParts; i++) {
+            random.nextBytes(content);
+            body.write(("--" + BOUNDARY + "\r\n"
+                    + "Content-Disposition: form-data; name=\"file" + i + "\"; filename=\"file" + i + "\"\r\n"
+                    + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            body.write(content);
+            body.write("\r\n".getBytes(StandardCharsets.ISO_8859_1));
+        }
+        body.write(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        return body.toByteArray();
+    }
+
+    private static class CountingPartHandler implements PartHandler {
+        long numBytes;
+
+        @Override
+        public void partStarted(PartHeaders headers) {
+        }
+
+        @Override
+        public void partData(ByteBuffer data) {
+            numBytes += data.remaining();
+        }
+
+        @Override
+        public void partFinished() {
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        long numBytes;
+
+        @Override
+        public void write(int b) {
+            numBytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            numBytes += len;
+        }
+    }
+}
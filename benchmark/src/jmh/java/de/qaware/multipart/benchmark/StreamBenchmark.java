@@ -0,0 +1,74 @@
+package de.qaware.multipart.benchmark;
+
+import de.qaware.multipart.common.FastInputStream;
+import de.qaware.multipart.common.MeteredInputStream;
+import de.qaware.multipart.common.MeteredOutputStream;
+import de.qaware.multipart.common.RandomInputStream;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the test data generators and the metered stream wrappers, one operation streams
+ * {@code streamSize} bytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class StreamBenchmark {
+    private static final long SEED = 42;
+
+    @Param({"4096", "32768", "262144"})
+    int bufferSize;
+    @Param({"67108864"})
+    long streamSize;
+
+    private byte[] buffer;
+
+    @Setup
+    public void setUp() {
+        buffer = new byte[bufferSize];
+    }
+
+    @Benchmark
+    public long fastInputStream() throws IOException {
+        return drain(new FastInputStream(streamSize));
+    }
+
+    @Benchmark
+    public long randomInputStream() throws IOException {
+        return drain(new RandomInputStream(streamSize, 32, SEED));
+    }
+
+    @Benchmark
+    public long meteredInputStream(Blackhole blackhole) throws IOException {
+        MeteredInputStream meteredInputStream = new MeteredInputStream(new FastInputStream(streamSize));
+        long numBytes = drain(meteredInputStream);
+        blackhole.consume(meteredInputStream.getMeter());
+        return numBytes;
+    }
+
+    @Benchmark
+    public long meteredOutputStream() throws IOException {
+        InputStream inputStream = new FastInputStream(streamSize);
+        MeteredOutputStream meteredOutputStream = new MeteredOutputStream(OutputStream.nullOutputStream());
+        int n;
+        while ((n = inputStream.read(buffer, 0, buffer.length)) > 0) {
+            meteredOutputStream.write(buffer, 0, n);
+        }
+        return meteredOutputStream.getNumBytes();
+    }
+
+    private long drain(InputStream inputStream) throws IOException {
+        long numBytes = 0;
+        int n;
+        while ((n = inputStream.read(buffer, 0, buffer.length)) > 0) {
+            numBytes += n;
+        }
+        return numBytes;
+    }
+}
@@ -0,0 +1,115 @@
+package de.qaware.multipart.client;
+
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleResponseConsumer;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.support.AsyncRequestBuilder;
+import org.apache.hc.core5.http.nio.support.classic.AbstractClassicEntityProducer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Apache HttpClient5 on its non-blocking I/O reactor. Over HTTP/2 all uploads share one connection, which is opened
+ * with prior knowledge since the server is known to speak h2c.
+ */
+class ApacheHttp5AsyncTransport implements UploadTransport {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Reads the upload streams, which must not block the I/O reactor
+    private final ExecutorService executor;
+    private final CloseableHttpAsyncClient httpClient;
+
+    ApacheHttp5AsyncTransport(int maxConnections, boolean http2) {
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.httpClient = http2
+                ? HttpAsyncClients.customHttp2().build()
+                : HttpAsyncClients.custom()
+                .setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(maxConnections)
+                        .setMaxConnPerRoute(maxConnections)
+                        .build())
+                .build();
+        this.httpClient.start();
+    }
+
+    @Override
+    public UploadClient.ServerResponse upload(RequestType requestType, String url, InputStream inputStream) throws IOException {
+        AsyncEntityProducer entity = switch (requestType) {
+            case MULTIPART, MULTIPART_FILE -> {
+                MultipartBodyStream body = MultipartBodyStream.of(inputStream);
+                yield new StreamEntityProducer(body.inputStream(), ContentType.parse(body.contentType()));
+            }
+            case SINGLE_PART -> new StreamEntityProducer(inputStream, ContentType.APPLICATION_OCTET_STREAM);
+            default -> throw new IllegalArgumentException("Request type not supported");
+        };
+        return await(httpClient.execute(
+                AsyncRequestBuilder.post(url).setEntity(entity).build(),
+                SimpleResponseConsumer.create(),
+                null
+        ));
+    }
+
+    @Override
+    public UploadClient.ServerResponse exchange(String method, String url, Map<String, String> headers, byte[] body) throws IOException {
+        SimpleHttpRequest request = new SimpleHttpRequest(method, URI.create(url));
+        headers.forEach(request::setHeader);
+        if (body != null) {
+            request.setBody(body, ContentType.APPLICATION_OCTET_STREAM);
+        }
+        return await(httpClient.execute(request, null));
+    }
+
+    private static UploadClient.ServerResponse await(Future<SimpleHttpResponse> future) throws IOException {
+        try {
+            SimpleHttpResponse response = future.get();
+            String responseBody = response.getBodyText();
+            return new UploadClient.ServerResponse(response.getCode(), responseBody == null ? "" : responseBody,
+                    ApacheHttp5Transport.firstValues(response.getHeaders()));
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the response");
+        } catch (ExecutionException e) {
+            throw new IOException("Request failed", e.getCause());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+        executor.shutdown();
+    }
+
+    /**
+     * Copies the stream on the executor, the reactor sends whatever has been buffered so far.
+     */
+    private class StreamEntityProducer extends AbstractClassicEntityProducer {
+        private final InputStream inputStream;
+
+        StreamEntityProducer(InputStream inputStream, ContentType contentType) {
+            super(BUFFER_SIZE, contentType, executor);
+            this.inputStream = inputStream;
+        }
+
+        @Override
+        protected void produceData(ContentType contentType, OutputStream outputStream) throws IOException {
+            try (inputStream) {
+                inputStream.transferTo(outputStream);
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package de.qaware.multipart.client;
+
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.entity.EntityBuilder;
+import org.apache.hc.client5.http.entity.mime.MultipartEntityBuilder;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.ParseException;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+class ApacheHttp5Transport implements UploadTransport {
+    private final CloseableHttpClient httpClient;
+
+    ApacheHttp5Transport(int maxConnections) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        this.httpClient = HttpClients.custom().setConnectionManager(connectionManager).build();
+    }
+
+    @Override
+    public UploadClient.ServerResponse upload(RequestType requestType, String url, InputStream inputStream) throws IOException {
+        HttpPost httppost = new HttpPost(url);
+        HttpEntity httpEntity = switch (requestType) {
+            case MULTIPART, MULTIPART_FILE -> MultipartEntityBuilder.create()
+                    .addBinaryBody(UploadClient.FILE_NAME, inputStream, ContentType.APPLICATION_OCTET_STREAM, "file")
+                    .build();
+            case SINGLE_PART -> EntityBuilder.create()
+                    .setStream(inputStream)
+                    .setContentType(ContentType.APPLICATION_OCTET_STREAM)
+                    .build();
+            default -> throw new IllegalArgumentException("Request type not supported");
+        };
+        httppost.setEntity(httpEntity);
+
+        try (final CloseableHttpResponse response = httpClient.execute(httppost)) {
+            String responseBody = EntityUtils.toString(response.getEntity());
+            return new UploadClient.ServerResponse(response.getCode(), responseBody);
+        } catch (ParseException e) {
+            throw new IOException("Can not parse response", e);
+        }
+    }
+
+    @Override
+    public UploadClient.ServerResponse exchange(String method, String url, Map<String, String> headers, byte[] body) throws IOException {
+        HttpUriRequestBase request = new HttpUriRequestBase(method, URI.create(url));
+        headers.forEach(request::setHeader);
+        if (body != null) {
+            request.setEntity(new ByteArrayEntity(body, ContentType.APPLICATION_OCTET_STREAM));
+        }
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            String responseBody = response.getEntity() == null ? "" : EntityUtils.toString(response.getEntity());
+            return new UploadClient.ServerResponse(response.getCode(), responseBody, firstValues(response.getHeaders()));
+        } catch (ParseException e) {
+            throw new IOException("Can not parse response", e);
+        }
+    }
+
+    static Map<String, String> firstValues(Header[] headers) {
+        return Arrays.stream(headers)
+                .collect(Collectors.toMap(Header::getName, Header::getValue, (first, second) -> first));
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+}
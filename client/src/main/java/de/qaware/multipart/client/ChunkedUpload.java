@@ -0,0 +1,116 @@
+package de.qaware.multipart.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Uploads a stream through a resumable upload session. Chunks are read from the stream one after the other and
+ * uploaded over up to {@code parallelChunks} connections, a failed chunk is sent again up to {@code retries} times.
+ * The transport should keep at least {@code parallelChunks + 1} connections open.
+ */
+class ChunkedUpload {
+    private static final Logger log = LoggerFactory.getLogger(ChunkedUpload.class);
+
+    private final UploadTransport transport;
+    private final String url;
+    private final int parallelChunks;
+    private final int retries;
+
+    ChunkedUpload(UploadTransport transport, String url, int parallelChunks, int retries) {
+        this.transport = transport;
+        this.url = url;
+        this.parallelChunks = parallelChunks;
+        this.retries = retries;
+    }
+
+    UploadClient.ServerResponse upload(InputStream inputStream, long numBytes) throws IOException {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            UploadClient.ServerResponse created = transport.exchange("POST", url, Map.of("Upload-Length", String.valueOf(numBytes)), null);
+            if (created.code() != 201) {
+                return new UploadClient.ServerResponse(created.code(), "Creating upload session failed");
+            }
+            String sessionUrl = url + "/" + lastPathSegment(created.header("Location"));
+            int chunkSize = Integer.parseInt(created.header("Upload-Chunk-Size"));
+            log.info("Uploading {} bytes in chunks of {} bytes to {}", numBytes, chunkSize, sessionUrl);
+
+            Semaphore inFlight = new Semaphore(parallelChunks);
+            List<CompletableFuture<Void>> chunks = new ArrayList<>();
+            for (long start = 0; start < numBytes; start += chunkSize) {
+                inFlight.acquire();
+                if (chunks.stream().anyMatch(CompletableFuture::isCompletedExceptionally)) {
+                    break;
+                }
+                byte[] chunk = inputStream.readNBytes((int) Math.min(chunkSize, numBytes - start));
+                long chunkStart = start;
+                chunks.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        putChunk(sessionUrl, chunk, chunkStart, numBytes);
+                    } finally {
+                        inFlight.release();
+                    }
+                }, executor));
+            }
+            try {
+                CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new)).join();
+            } catch (CompletionException e) {
+                log.warn("Upload incomplete: {}", status(sessionUrl).body());
+                throw new IOException("Uploading chunk failed", e.getCause());
+            }
+
+            return transport.exchange("POST", sessionUrl + "/complete", Map.of(), null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a chunk upload");
+        }
+    }
+
+    private void putChunk(String sessionUrl, byte[] chunk, long start, long numBytes) {
+        String contentRange = "bytes " + start + "-" + (start + chunk.length - 1) + "/" + numBytes;
+        for (int attempt = 0; ; attempt++) {
+            String failure;
+            boolean retryable = true;
+            try {
+                UploadClient.ServerResponse response = transport.exchange("PUT", sessionUrl, Map.of("Content-Range", contentRange), chunk);
+                if (response.code() == 200) {
+                    return;
+                }
+                failure = "status " + response.code();
+                // Client errors will not go away by sending the chunk again
+                retryable = response.code() >= 500;
+            } catch (IOException e) {
+                failure = e.getMessage();
+            }
+            if (!retryable || attempt >= retries) {
+                throw new IllegalStateException("Uploading " + contentRange + " failed: " + failure);
+            }
+            log.warn("Uploading {} failed with {}, retrying", contentRange, failure);
+        }
+    }
+
+    private UploadClient.ServerResponse status(String sessionUrl) {
+        try {
+            return transport.exchange("GET", sessionUrl, Map.of(), null);
+        } catch (IOException e) {
+            return new UploadClient.ServerResponse(0, e.getMessage());
+        }
+    }
+
+    private static String lastPathSegment(String location) throws IOException {
+        if (location == null) {
+            throw new IOException("Upload session has no location");
+        }
+        return location.substring(location.lastIndexOf('/') + 1);
+    }
+}
@@ -1,7 +1,16 @@
 package de.qaware.multipart.client;
 
+/**
+ * The {@code _H2C} variants speak cleartext HTTP/2 and multiplex all uploads over one connection.
+ */
 public enum ClientType {
     APACHE_HTTP5,
+    APACHE_HTTP5_ASYNC,
+    APACHE_HTTP5_H2C,
     OK_HTTP,
+    OK_HTTP_H2C,
     SPRING_WEB_FLUX,
+    SPRING_WEB_FLUX_H2C,
+    JDK_HTTP,
+    JDK_HTTP_H2C,
 }
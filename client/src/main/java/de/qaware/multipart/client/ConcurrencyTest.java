@@ -0,0 +1,129 @@
+package de.qaware.multipart.client;
+
+import de.qaware.multipart.common.FastInputStream;
+import de.qaware.multipart.common.ThrottledInputStream;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.entity.EntityBuilder;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.ParseException;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Starts many slow single part uploads at once and reports how many of them the server processes concurrently.
+ * Run it against the server with {@code spring.threads.virtual.enabled} set to false and to true to compare
+ * the platform thread pool with virtual threads.
+ */
+@Command(name = "concurrency-test", mixinStandardHelpOptions = true)
+public class ConcurrencyTest implements Callable<Integer> {
+    private static final Logger log = LoggerFactory.getLogger(ConcurrencyTest.class);
+
+    private static final Pattern METRIC_VALUE = Pattern.compile("\"value\"\\s*:\\s*([0-9.]+)");
+
+    @Option(names = {"--base-url"})
+    String baseUrl = "http://localhost:8080";
+    @Option(names = {"--concurrency"})
+    int concurrency = 1000;
+    @Option(names = {"--num-bytes"})
+    long numBytes = 16 * 1024L * 1024L;
+    @Option(names = {"--bytes-per-second"})
+    long bytesPerSecond = 256 * 1024L;
+
+    @Override
+    public Integer call() throws Exception {
+        log.info("Starting {} uploads of {} bytes at {} bytes/s against {}", concurrency, numBytes, bytesPerSecond, baseUrl);
+
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(concurrency + 1);
+        connectionManager.setDefaultMaxPerRoute(concurrency + 1);
+
+        AtomicInteger peakInFlight = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        long tStart = System.nanoTime();
+        try (CloseableHttpClient httpClient = HttpClients.custom().setConnectionManager(connectionManager).build();
+             ExecutorService uploads = Executors.newVirtualThreadPerTaskExecutor();
+             ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor()) {
+            poller.scheduleAtFixedRate(() -> peakInFlight.accumulateAndGet(serverInFlight(httpClient), Math::max),
+                    0, 200, TimeUnit.MILLISECONDS);
+
+            List<Future<Double>> durations = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                durations.add(uploads.submit(() -> upload(httpClient, failed)));
+            }
+
+            double maxDuration = 0;
+            double sumDuration = 0;
+            for (Future<Double> duration : durations) {
+                maxDuration = Math.max(maxDuration, duration.get());
+                sumDuration += duration.get();
+            }
+            poller.shutdownNow();
+
+            double duration = (System.nanoTime() - tStart) / 1e9;
+            log.info("Failed uploads: {}", failed.get());
+            log.info("Peak concurrent uploads on server: {}", peakInFlight.get());
+            log.info("Mean upload duration: {}", String.format("%.3f", sumDuration / concurrency));
+            log.info("Max upload duration: {}", String.format("%.3f", maxDuration));
+            log.info("Aggregate MB/s: {}", String.format("%.3f", concurrency * numBytes / duration / 1024 / 1024));
+        }
+        return 0;
+    }
+
+    public static void main(String[] args) {
+        int exitCode = new CommandLine(new ConcurrencyTest()).execute(args);
+        System.exit(exitCode);
+    }
+
+
+    private double upload(CloseableHttpClient httpClient, AtomicInteger failed) {
+        long tStart = System.nanoTime();
+        HttpPost httppost = new HttpPost(baseUrl + RequestType.SINGLE_PART.getPath());
+        httppost.setEntity(EntityBuilder.create()
+                .setStream(new ThrottledInputStream(new FastInputStream(numBytes), bytesPerSecond))
+                .setContentType(ContentType.APPLICATION_OCTET_STREAM)
+                .build());
+        try (CloseableHttpResponse response = httpClient.execute(httppost)) {
+            EntityUtils.consume(response.getEntity());
+            if (response.getCode() != 200) {
+                failed.incrementAndGet();
+            }
+        } catch (IOException e) {
+            log.warn("Upload failed: {}", e.getMessage());
+            failed.incrementAndGet();
+        }
+        return (System.nanoTime() - tStart) / 1e9;
+    }
+
+    private int serverInFlight(CloseableHttpClient httpClient) {
+        HttpGet httpGet = new HttpGet(baseUrl + "/actuator/metrics/upload.inflight?tag=endpoint:singlepart");
+        try (CloseableHttpResponse response = httpClient.execute(httpGet)) {
+            String body = EntityUtils.toString(response.getEntity());
+            Matcher matcher = METRIC_VALUE.matcher(body);
+            return response.getCode() == 200 && matcher.find() ? (int) Double.parseDouble(matcher.group(1)) : 0;
+        } catch (IOException | ParseException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package de.qaware.multipart.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Streams the body with {@link HttpRequest.BodyPublishers#ofInputStream}. The JDK client sizes its connection pool
+ * itself, it opens as many HTTP/1.1 connections as there are concurrent uploads.
+ */
+class JdkHttpTransport implements UploadTransport {
+    private final HttpClient.Version version;
+    private final ExecutorService executor;
+    private final HttpClient client;
+    private final Set<String> upgradedOrigins = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock upgradeLock = new ReentrantLock();
+
+    JdkHttpTransport(HttpClient.Version version) {
+        this.version = version;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.client = HttpClient.newBuilder()
+                .version(version)
+                .executor(executor)
+                .build();
+    }
+
+    @Override
+    public UploadClient.ServerResponse upload(RequestType requestType, String url, InputStream inputStream) throws IOException {
+        URI uri = URI.create(url);
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri);
+        switch (requestType) {
+            case MULTIPART, MULTIPART_FILE -> {
+                MultipartBodyStream body = MultipartBodyStream.of(inputStream);
+                request.header("Content-Type", body.contentType())
+                        .POST(HttpRequest.BodyPublishers.ofInputStream(body::inputStream));
+            }
+            case SINGLE_PART -> request.header("Content-Type", "application/octet-stream")
+                    .POST(HttpRequest.BodyPublishers.ofInputStream(() -> inputStream));
+            default -> throw new IllegalArgumentException("Request type not supported");
+        }
+        upgrade(uri);
+        return send(request.build());
+    }
+
+    @Override
+    public UploadClient.ServerResponse exchange(String method, String url, Map<String, String> headers, byte[] body) throws IOException {
+        URI uri = URI.create(url);
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri);
+        headers.forEach(request::header);
+        if (body == null) {
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        } else {
+            request.header("Content-Type", "application/octet-stream")
+                    .method(method, HttpRequest.BodyPublishers.ofByteArray(body));
+        }
+        upgrade(uri);
+        return send(request.build());
+    }
+
+    /**
+     * Cleartext HTTP/2 starts as an upgrade of an HTTP/1.1 request. Upgrading with a request without a body first
+     * lets all uploads share the upgraded connection, instead of each sending its body over HTTP/1.1.
+     */
+    private void upgrade(URI uri) throws IOException {
+        if (version != HttpClient.Version.HTTP_2 || !"http".equals(uri.getScheme())) {
+            return;
+        }
+        String origin = uri.getScheme() + "://" + uri.getAuthority();
+        if (upgradedOrigins.contains(origin)) {
+            return;
+        }
+        upgradeLock.lock();
+        try {
+            if (!upgradedOrigins.contains(origin)) {
+                send(HttpRequest.newBuilder(uri).method("OPTIONS", HttpRequest.BodyPublishers.noBody()).build());
+                upgradedOrigins.add(origin);
+            }
+        } finally {
+            upgradeLock.unlock();
+        }
+    }
+
+    private UploadClient.ServerResponse send(HttpRequest request) throws IOException {
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            return new UploadClient.ServerResponse(response.statusCode(), response.body(), firstValues(response.headers()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the response");
+        }
+    }
+
+    private static Map<String, String> firstValues(HttpHeaders headers) {
+        return headers.map().entrySet().stream()
+                .filter(header -> !header.getValue().isEmpty())
+                .collect(Collectors.toMap(Map.Entry::getKey, header -> header.getValue().get(0)));
+    }
+
+    @Override
+    public void close() {
+        client.close();
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,150 @@
+package de.qaware.multipart.client;
+
+import de.qaware.multipart.common.DataPattern;
+import de.qaware.multipart.common.FastInputStream;
+import de.qaware.multipart.common.RandomInputStream;
+import lombok.RequiredArgsConstructor;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends uploads over a shared transport until the duration has elapsed or all iterations are done.
+ * <p>
+ * Closed loop: {@code concurrency} workers send their next upload as soon as the previous one has completed.
+ * Open loop: uploads start at a fixed rate whether or not earlier ones have completed, latency is measured from
+ * the scheduled start, so a server falling behind shows up in the percentiles instead of lowering the load.
+ */
+@RequiredArgsConstructor
+class LoadGenerator {
+    private static final Logger log = LoggerFactory.getLogger(LoadGenerator.class);
+
+    private final UploadTransport transport;
+    private final RequestType requestType;
+    private final String url;
+    private final SizeMix sizeMix;
+    private final boolean randomData;
+    private final DataPattern dataPattern;
+    private final long seed;
+    private final int concurrency;
+    /**
+     * Uploads per second, zero for a closed loop.
+     */
+    private final double rate;
+    private final long durationNanos;
+    /**
+     * Number of uploads, zero to run for the whole duration.
+     */
+    private final long iterations;
+
+    private final Histogram latencies = new ConcurrentHistogram(3);
+    private final LongAdder uploadedBytes = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final Map<Integer, LongAdder> statusCodes = new ConcurrentHashMap<>();
+
+    void run(Path histogramFile) throws IOException {
+        log.info("Running {} load against {} with {} connections{} for {}",
+                rate > 0 ? "open loop" : "closed loop", url, concurrency,
+                rate > 0 ? " at " + rate + " uploads/s" : "",
+                iterations > 0 ? iterations + " uploads" : TimeUnit.NANOSECONDS.toSeconds(durationNanos) + " s");
+
+        long tStart = System.nanoTime();
+        long deadline = tStart + durationNanos;
+        long limit = iterations > 0 ? iterations : Long.MAX_VALUE;
+        try (ExecutorService uploads = Executors.newVirtualThreadPerTaskExecutor()) {
+            if (rate > 0) {
+                long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+                for (long i = 0; i < limit; i++) {
+                    long scheduled = tStart + i * intervalNanos;
+                    if (iterations == 0 && scheduled - deadline >= 0) {
+                        break;
+                    }
+                    sleepUntil(scheduled);
+                    SplittableRandom random = new SplittableRandom(seed + i);
+                    uploads.submit(() -> upload(random, scheduled));
+                }
+            } else {
+                AtomicLong remaining = new AtomicLong(limit);
+                for (int i = 0; i < concurrency; i++) {
+                    SplittableRandom random = new SplittableRandom(seed + i);
+                    uploads.submit(() -> {
+                        while ((iterations > 0 || System.nanoTime() - deadline < 0) && remaining.getAndDecrement() > 0) {
+                            upload(random, System.nanoTime());
+                        }
+                    });
+                }
+            }
+        }
+        report(System.nanoTime() - tStart, histogramFile);
+    }
+
+    private void upload(SplittableRandom random, long startNanos) {
+        long size = sizeMix.next(random);
+        InputStream inputStream = randomData
+                ? new RandomInputStream(size, 32, random.nextLong(), dataPattern)
+                : new FastInputStream(size);
+        try {
+            UploadClient.ServerResponse response = transport.upload(requestType, url, inputStream);
+            statusCodes.computeIfAbsent(response.code(), code -> new LongAdder()).increment();
+            if (response.code() / 100 == 2) {
+                latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+                uploadedBytes.add(size);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("Upload failed", e);
+            errors.increment();
+        }
+    }
+
+    private void report(long elapsedNanos, Path histogramFile) throws IOException {
+        double duration = elapsedNanos / 1e9;
+        Map<Integer, Long> codes = new TreeMap<>();
+        statusCodes.forEach((code, count) -> codes.put(code, count.sum()));
+        log.info("Duration: {}", String.format("%.3f", duration));
+        log.info("Responses by status: {}, errors: {}", codes, errors.sum());
+        log.info("Successful uploads/s: {}", String.format("%.1f", latencies.getTotalCount() / duration));
+        log.info("Aggregate MB/s: {}", String.format("%.3f", uploadedBytes.sum() / duration / 1024 / 1024));
+        if (latencies.getTotalCount() > 0) {
+            log.info("Latency ms p50: {}, p90: {}, p99: {}, p99.9: {}, max: {}",
+                    millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(90)),
+                    millis(latencies.getValueAtPercentile(99)), millis(latencies.getValueAtPercentile(99.9)),
+                    millis(latencies.getMaxValue()));
+        }
+        try (PrintStream printStream = new PrintStream(Files.newOutputStream(histogramFile))) {
+            latencies.outputPercentileDistribution(printStream, 1000.0);
+        }
+    }
+
+    private static String millis(long micros) {
+        return String.format("%.3f", micros / 1000.0);
+    }
+
+    private static void sleepUntil(long nanos) throws InterruptedIOException {
+        long waitNanos = nanos - System.nanoTime();
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the next upload");
+            }
+        }
+    }
+}
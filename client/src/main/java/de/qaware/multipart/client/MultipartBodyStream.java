@@ -0,0 +1,31 @@
+package de.qaware.multipart.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A {@code multipart/form-data} body with the stream as its only part, for clients without a streaming multipart
+ * builder. The part is not copied, closing the body closes it.
+ */
+record MultipartBodyStream(String contentType, InputStream inputStream) {
+
+    static MultipartBodyStream of(InputStream part) {
+        String boundary = "upload-" + UUID.randomUUID();
+        String head = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"" + UploadClient.FILE_NAME + "\"; filename=\"file\"\r\n"
+                + "Content-Type: application/octet-stream\r\n"
+                + "\r\n";
+        String tail = "\r\n--" + boundary + "--\r\n";
+        InputStream body = new SequenceInputStream(Collections.enumeration(List.of(
+                new ByteArrayInputStream(head.getBytes(StandardCharsets.US_ASCII)),
+                part,
+                new ByteArrayInputStream(tail.getBytes(StandardCharsets.US_ASCII))
+        )));
+        return new MultipartBodyStream("multipart/form-data; boundary=" + boundary, body);
+    }
+}
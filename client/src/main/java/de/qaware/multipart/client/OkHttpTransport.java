@@ -0,0 +1,103 @@
+package de.qaware.multipart.client;
+
+import okhttp3.ConnectionPool;
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+class OkHttpTransport implements UploadTransport {
+    private static final MediaType OCTET_STREAM = MediaType.get("application/octet-stream");
+
+    private final OkHttpClient client;
+
+    /**
+     * @param h2c speak HTTP/2 with prior knowledge, all uploads share one connection
+     */
+    OkHttpTransport(int maxConnections, boolean h2c) {
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(maxConnections, 5, TimeUnit.MINUTES));
+        if (h2c) {
+            builder.protocols(List.of(Protocol.H2_PRIOR_KNOWLEDGE));
+        }
+        this.client = builder.build();
+    }
+
+    @Override
+    public UploadClient.ServerResponse upload(RequestType requestType, String url, InputStream inputStream) throws IOException {
+        RequestBody requestBody = new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return OCTET_STREAM;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                try (Source source = Okio.source(inputStream)) {
+                    sink.writeAll(source);
+                }
+            }
+        };
+
+        RequestBody body = switch (requestType) {
+            case MULTIPART, MULTIPART_FILE -> new MultipartBody.Builder()
+                    .setType(MediaType.get("multipart/form-data"))
+                    .addFormDataPart(
+                            UploadClient.FILE_NAME,
+                            "",
+                            requestBody
+                    )
+                    .build();
+            case SINGLE_PART -> requestBody;
+            default -> throw new IllegalArgumentException("Request type not supported");
+        };
+        Request request = new Request.Builder()
+                .url(url)
+                .post(body)
+                .build();
+        return execute(request);
+    }
+
+    @Override
+    public UploadClient.ServerResponse exchange(String method, String url, Map<String, String> headers, byte[] body) throws IOException {
+        RequestBody requestBody = body != null ? RequestBody.create(body, OCTET_STREAM)
+                // OkHttp insists on a body for these methods
+                : "POST".equals(method) || "PUT".equals(method) ? RequestBody.create(new byte[0])
+                : null;
+        Request.Builder request = new Request.Builder()
+                .url(url)
+                .method(method, requestBody);
+        headers.forEach(request::header);
+        return execute(request.build());
+    }
+
+    private UploadClient.ServerResponse execute(Request request) throws IOException {
+        try (Response response = client.newCall(request).execute()) {
+            var responseBody = response.body();
+            Map<String, String> headers = new HashMap<>();
+            for (String name : response.headers().names()) {
+                headers.put(name, response.header(name));
+            }
+            return new UploadClient.ServerResponse(response.code(), responseBody == null ? "" : responseBody.string(), headers);
+        }
+    }
+
+    @Override
+    public void close() {
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+}
@@ -9,6 +9,7 @@ public enum RequestType {
     MULTIPART("/api/multipart"),
     MULTIPART_FILE("/api/multipart/file"),
     SINGLE_PART("/api/singlepart"),
+    CHUNKED("/api/uploads"),
     ;
     private final String path;
 }
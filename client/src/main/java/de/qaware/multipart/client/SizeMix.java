@@ -0,0 +1,48 @@
+package de.qaware.multipart.client;
+
+import java.util.SplittableRandom;
+
+/**
+ * Request sizes drawn by weight, given as {@code <bytes>:<weight>,...}, e.g. {@code 65536:10,16777216:1}.
+ * The weight may be omitted and defaults to one.
+ */
+class SizeMix {
+    private final long[] sizes;
+    private final long[] cumulativeWeights;
+
+    private SizeMix(long[] sizes, long[] cumulativeWeights) {
+        this.sizes = sizes;
+        this.cumulativeWeights = cumulativeWeights;
+    }
+
+    static SizeMix of(long size) {
+        return new SizeMix(new long[]{size}, new long[]{1});
+    }
+
+    static SizeMix parse(String mix) {
+        String[] entries = mix.split(",");
+        long[] sizes = new long[entries.length];
+        long[] cumulativeWeights = new long[entries.length];
+        long total = 0;
+        for (int i = 0; i < entries.length; i++) {
+            String[] entry = entries[i].trim().split(":");
+            sizes[i] = Long.parseLong(entry[0].trim());
+            long weight = entry.length > 1 ? Long.parseLong(entry[1].trim()) : 1;
+            if (sizes[i] < 0 || weight < 1) {
+                throw new IllegalArgumentException("Invalid size mix entry: " + entries[i]);
+            }
+            total += weight;
+            cumulativeWeights[i] = total;
+        }
+        return new SizeMix(sizes, cumulativeWeights);
+    }
+
+    long next(SplittableRandom random) {
+        long pick = random.nextLong(cumulativeWeights[cumulativeWeights.length - 1]);
+        int i = 0;
+        while (pick >= cumulativeWeights[i]) {
+            i++;
+        }
+        return sizes[i];
+    }
+}
@@ -0,0 +1,112 @@
+package de.qaware.multipart.client;
+
+import de.qaware.multipart.common.FastInputStream;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Starts the server command once per run and measures the time from launching it until the first upload succeeds,
+ * which is what a cold instance adds to the latency of scaling out. The server is stopped after each run.
+ */
+@RequiredArgsConstructor
+class StartupBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(StartupBenchmark.class);
+    private static final long UPLOAD_BYTES = 1024;
+    private static final long POLL_INTERVAL_MILLIS = 10;
+    private static final long STOP_TIMEOUT_SECONDS = 30;
+
+    private final List<String> command;
+    private final ClientType clientType;
+    private final RequestType requestType;
+    private final String url;
+    private final int runs;
+    private final long timeoutNanos;
+
+    void run(Path csvFile) throws IOException {
+        log.info("Measuring time to first upload against {} over {} runs of {}", url, runs, command);
+
+        List<Long> durations = new ArrayList<>();
+        try (PrintStream csv = new PrintStream(Files.newOutputStream(csvFile))) {
+            csv.println("run,time_to_first_upload_ms");
+            for (int run = 1; run <= runs; run++) {
+                long duration = measure();
+                durations.add(duration);
+                csv.println(run + "," + millis(duration));
+                log.info("Run {}: first upload after {} ms", run, millis(duration));
+            }
+        }
+        durations.sort(null);
+        log.info("Time to first upload ms min: {}, median: {}, max: {}",
+                millis(durations.get(0)), millis(durations.get(durations.size() / 2)), millis(durations.get(durations.size() - 1)));
+    }
+
+    private long measure() throws IOException {
+        long tStart = System.nanoTime();
+        Process server = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        // A new client per run, pooled connections to the previous server are dead
+        try (UploadTransport transport = UploadTransport.create(clientType, 1)) {
+            while (true) {
+                try {
+                    UploadClient.ServerResponse response = transport.upload(requestType, url, new FastInputStream(UPLOAD_BYTES));
+                    if (response.code() == 200) {
+                        return System.nanoTime() - tStart;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // Not listening yet
+                }
+                if (!server.isAlive()) {
+                    throw new IOException("Server exited with " + server.exitValue() + " before an upload succeeded");
+                }
+                if (System.nanoTime() - tStart > timeoutNanos) {
+                    throw new IOException("No upload succeeded within " + TimeUnit.NANOSECONDS.toSeconds(timeoutNanos) + " s");
+                }
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the server");
+        } finally {
+            stop(server);
+        }
+    }
+
+    /**
+     * Stops the server and whatever it launched, e.g. the JVM started by Gradle, so the port is free for the next run.
+     */
+    private static void stop(Process server) throws IOException {
+        List<ProcessHandle> processes = new ArrayList<>(server.descendants().toList());
+        processes.add(server.toHandle());
+        processes.forEach(ProcessHandle::destroy);
+        try {
+            for (ProcessHandle process : processes) {
+                try {
+                    process.onExit().get(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                } catch (ExecutionException | TimeoutException e) {
+                    process.destroyForcibly();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while stopping the server");
+        }
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
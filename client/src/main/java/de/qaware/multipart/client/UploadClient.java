@@ -1,38 +1,31 @@
 package de.qaware.multipart.client;
 
+import de.qaware.multipart.common.DataPattern;
 import de.qaware.multipart.common.FastInputStream;
 import de.qaware.multipart.common.MeteredInputStream;
 import de.qaware.multipart.common.RandomInputStream;
-import okhttp3.*;
-import okio.BufferedSink;
-import okio.Okio;
-import okio.Source;
-import org.apache.hc.client5.http.classic.methods.HttpPost;
-import org.apache.hc.client5.http.entity.EntityBuilder;
-import org.apache.hc.client5.http.entity.mime.MultipartEntityBuilder;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.core5.http.ContentType;
-import org.apache.hc.core5.http.HttpEntity;
-import org.apache.hc.core5.http.ParseException;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.io.InputStreamResource;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.MultipartBodyBuilder;
-import org.springframework.web.reactive.function.BodyInserters;
-import org.springframework.web.reactive.function.client.WebClient;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.CRC32;
 import java.util.zip.CheckedInputStream;
 import java.util.zip.Checksum;
@@ -51,13 +44,48 @@ public class UploadClient implements Callable<Integer> {
     RequestType requestType = RequestType.MULTIPART;
     @Option(names = {"--random-data"})
     boolean randomData = false;
+    @Option(names = {"--data-pattern"})
+    DataPattern dataPattern = DataPattern.BLOCKS;
     @Option(names = {"--num-bytes"})
     long numBytes = 2 * 1024L * 1024L * 1024L - 1024L;
+    @Option(names = {"--parallel-chunks"})
+    int parallelChunks = 4;
+    @Option(names = {"--chunk-retries"})
+    int chunkRetries = 3;
+    @Option(names = {"--download"})
+    UUID downloadId;
+    @Option(names = {"--load"})
+    boolean load = false;
+    @Option(names = {"--concurrency"})
+    int concurrency = 16;
+    @Option(names = {"--rate"})
+    double rate = 0;
+    @Option(names = {"--duration-seconds"})
+    long durationSeconds = 30;
+    @Option(names = {"--iterations"})
+    long iterations = 0;
+    @Option(names = {"--size-mix"})
+    String sizeMix;
+    @Option(names = {"--startup"})
+    String startupCommand;
+    @Option(names = {"--startup-runs"})
+    int startupRuns = 5;
+    @Option(names = {"--startup-timeout-seconds"})
+    long startupTimeoutSeconds = 120;
 
     @Override
     public Integer call() throws Exception {
+        if (downloadId != null) {
+            return download();
+        }
         String url = BASE_URL + requestType.getPath();
-        InputStream inputStream = randomData ? new RandomInputStream(numBytes, 32, SEED) : new FastInputStream(numBytes);
+        if (load) {
+            return load(url);
+        }
+        if (startupCommand != null) {
+            return startup(url);
+        }
+        InputStream inputStream = randomData ? new RandomInputStream(numBytes, 32, SEED, dataPattern) : new FastInputStream(numBytes);
 
         log.info("Performing {} request with client {} against {} using {}",
                 requestType, clientType, url, inputStream.getClass().getSimpleName());
@@ -67,138 +95,119 @@ public class UploadClient implements Callable<Integer> {
         long tStart = System.nanoTime();
         Checksum checksum = new CRC32();
         try (CheckedInputStream checkedInputStream = new CheckedInputStream(meteredInputStream, checksum)) {
-            ServerResponse response = switch (requestType) {
-                case MULTIPART, MULTIPART_FILE -> switch (clientType) {
-                    case APACHE_HTTP5 -> multipartApacheHttpClient5(url, checkedInputStream);
-                    case OK_HTTP -> okHttpClient(url, checkedInputStream);
-                    case SPRING_WEB_FLUX -> multipartSpringBootWebClient(url, checkedInputStream);
-                };
-                case SINGLE_PART -> switch (clientType) {
-                    case APACHE_HTTP5 -> singlePartApacheHttpClient5(url, checkedInputStream);
-                    case SPRING_WEB_FLUX -> singlePartSpringBootWebClient(url, checkedInputStream);
-                    default -> throw new IllegalArgumentException("Client type not supported");
-                };
-            };
+            ServerResponse response;
+            if (requestType == RequestType.CHUNKED) {
+                try (UploadTransport transport = UploadTransport.create(clientType, parallelChunks + 1)) {
+                    response = new ChunkedUpload(transport, url, parallelChunks, chunkRetries).upload(checkedInputStream, numBytes);
+                }
+            } else {
+                try (UploadTransport transport = UploadTransport.create(clientType, 1)) {
+                    response = transport.upload(requestType, url, checkedInputStream);
+                }
+            }
             log.info("Response: {} - {}", response.code, response.body);
         }
-        long tEnd = System.nanoTime();
-        double duration = (tEnd - tStart) / 1e9;
-        String mbPerSecond = String.format("%.3f", numBytes / duration / 1024 / 1024);
-        log.info("Number of bytes: {}", numBytes);
-        log.info("Checksum: {}", checksum.getValue());
-        log.info("Duration: {}", duration);
-        log.info("MB/s: {}", mbPerSecond);
+        logStats(numBytes, tStart, checksum);
         meteredInputStream.toCsv(Path.of("stats-client.csv"));
         return 0;
     }
 
-    public static void main(String[] args) {
-        int exitCode = new CommandLine(new UploadClient()).execute(args);
-        System.exit(exitCode);
+    private Integer load(String url) throws IOException {
+        if (requestType == RequestType.CHUNKED) {
+            throw new IllegalArgumentException("Request type not supported in load mode");
+        }
+        try (UploadTransport transport = UploadTransport.create(clientType, concurrency)) {
+            new LoadGenerator(
+                    transport,
+                    requestType,
+                    url,
+                    sizeMix == null ? SizeMix.of(numBytes) : SizeMix.parse(sizeMix),
+                    randomData,
+                    dataPattern,
+                    SEED,
+                    concurrency,
+                    rate,
+                    TimeUnit.SECONDS.toNanos(durationSeconds),
+                    iterations
+            ).run(Path.of("stats-client-load.hgrm"));
+        }
+        return 0;
     }
 
-
-    private static ServerResponse multipartApacheHttpClient5(String url, InputStream inputStream) throws IOException {
-        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
-            HttpPost httppost = new HttpPost(url);
-
-            HttpEntity httpEntity = MultipartEntityBuilder.create()
-                    .addBinaryBody(FILE_NAME, inputStream, ContentType.APPLICATION_OCTET_STREAM, "file")
-                    .build();
-            httppost.setEntity(httpEntity);
-
-            try (final CloseableHttpResponse response = httpclient.execute(httppost)) {
-                String responseBody = EntityUtils.toString(response.getEntity());
-                return new ServerResponse(response.getCode(), responseBody);
-            } catch (ParseException e) {
-                throw new IOException("Can not parse response", e);
-            }
+    private Integer startup(String url) throws IOException {
+        if (requestType == RequestType.CHUNKED) {
+            throw new IllegalArgumentException("Request type not supported in startup mode");
         }
+        new StartupBenchmark(
+                List.of(startupCommand.trim().split("\\s+")),
+                clientType,
+                requestType,
+                url,
+                startupRuns,
+                TimeUnit.SECONDS.toNanos(startupTimeoutSeconds)
+        ).run(Path.of("stats-client-startup.csv"));
+        return 0;
     }
 
-    private static ServerResponse singlePartApacheHttpClient5(String url, InputStream inputStream) throws IOException {
-        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
-            HttpPost httppost = new HttpPost(url);
+    /**
+     * Downloads a document and discards it, with the same statistics as an upload.
+     */
+    private Integer download() throws IOException {
+        String url = BASE_URL + "/api/documents/" + downloadId;
+        log.info("Performing download with client {} against {}", ClientType.APACHE_HTTP5, url);
 
-            httppost.setEntity(EntityBuilder.create()
-                    .setStream(inputStream)
-                    .setContentType(ContentType.APPLICATION_OCTET_STREAM)
-                    .build());
-
-            try (final CloseableHttpResponse response = httpclient.execute(httppost)) {
-                String responseBody = EntityUtils.toString(response.getEntity());
-                return new ServerResponse(response.getCode(), responseBody);
-            } catch (ParseException e) {
-                throw new IOException("Can not parse response", e);
+        long tStart = System.nanoTime();
+        Checksum checksum = new CRC32();
+        try (CloseableHttpClient httpclient = HttpClients.createDefault();
+             CloseableHttpResponse response = httpclient.execute(new HttpGet(url))) {
+            if (response.getCode() != 200) {
+                log.error("Response: {}", response.getCode());
+                EntityUtils.consume(response.getEntity());
+                return 1;
             }
+            MeteredInputStream meteredInputStream = new MeteredInputStream(response.getEntity().getContent());
+            long downloaded;
+            try (CheckedInputStream checkedInputStream = new CheckedInputStream(meteredInputStream, checksum)) {
+                downloaded = checkedInputStream.transferTo(OutputStream.nullOutputStream());
+            }
+            logStats(downloaded, tStart, checksum);
+            meteredInputStream.toCsv(Path.of("stats-client-download.csv"));
         }
+        return 0;
     }
 
-    private static ServerResponse okHttpClient(String url, InputStream inputStream) throws IOException {
-        OkHttpClient client = new OkHttpClient();
-
-        RequestBody requestBody = new RequestBody() {
-            @Override
-            public okhttp3.MediaType contentType() {
-                return okhttp3.MediaType.get("application/octet-stream");
-            }
+    private static void logStats(long numBytes, long tStart, Checksum checksum) {
+        long tEnd = System.nanoTime();
+        double duration = (tEnd - tStart) / 1e9;
+        String mbPerSecond = String.format("%.3f", numBytes / duration / 1024 / 1024);
+        log.info("Number of bytes: {}", numBytes);
+        log.info("Checksum: {}", checksum.getValue());
+        log.info("Duration: {}", duration);
+        log.info("MB/s: {}", mbPerSecond);
+    }
 
-            @Override
-            public void writeTo(BufferedSink sink) throws IOException {
-                try (Source source = Okio.source(inputStream)) {
-                    sink.writeAll(source);
-                }
-            }
-        };
-
-        RequestBody body = new MultipartBody.Builder()
-                .setType(okhttp3.MediaType.get("multipart/form-data"))
-                .addFormDataPart(
-                        FILE_NAME,
-                        "",
-                        requestBody
-                )
-                .build();
-        Request request = new Request.Builder()
-                .url(url)
-                .post(body)
-                .build();
-        try (Response response = client.newCall(request).execute()) {
-            var responseBody = response.body();
-            return new ServerResponse(response.code(), responseBody == null ? "" : responseBody.string());
-        }
+    public static void main(String[] args) {
+        int exitCode = new CommandLine(new UploadClient()).execute(args);
+        System.exit(exitCode);
     }
 
-    private static ServerResponse multipartSpringBootWebClient(String url, InputStream inputStream) {
-        MultipartBodyBuilder builder = new MultipartBodyBuilder();
-        builder.part(FILE_NAME, new InputStreamResource(inputStream), MediaType.APPLICATION_OCTET_STREAM);
-
-        WebClient client = WebClient.create(url);
-        ResponseEntity<String> response = client.post()
-                .body(BodyInserters.fromMultipartData(builder.build()))
-                .retrieve()
-                .toEntity(String.class)
-                .block();
-        if (response != null) {
-            return new ServerResponse(response.getStatusCodeValue(), response.getBody());
+    /**
+     * @param headers response headers by case-insensitive name, only the first value of each
+     */
+    record ServerResponse(int code, String body, Map<String, String> headers) {
+        ServerResponse {
+            Map<String, String> caseInsensitive = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            caseInsensitive.putAll(headers);
+            headers = Collections.unmodifiableMap(caseInsensitive);
         }
-        return new ServerResponse(0, "");
-    }
 
-    private static ServerResponse singlePartSpringBootWebClient(String url, InputStream inputStream) {
-        WebClient client = WebClient.create(url);
-        ResponseEntity<String> response = client.post()
-                .body(BodyInserters.fromResource(new InputStreamResource(inputStream)))
-                .retrieve()
-                .toEntity(String.class)
-                .block();
-        if (response != null) {
-            return new ServerResponse(response.getStatusCodeValue(), response.getBody());
+        ServerResponse(int code, String body) {
+            this(code, body, Map.of());
         }
-        return new ServerResponse(0, "");
-    }
 
-    private record ServerResponse(int code, String body) {
+        String header(String name) {
+            return headers.get(name);
+        }
     }
 }
 
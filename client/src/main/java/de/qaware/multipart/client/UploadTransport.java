@@ -0,0 +1,45 @@
+package de.qaware.multipart.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.util.Map;
+
+/**
+ * An HTTP client kept open across uploads, so connections are reused.
+ */
+interface UploadTransport extends AutoCloseable {
+
+    /**
+     * Sends the stream as the only part of a multipart request or, for {@link RequestType#SINGLE_PART}, as the body.
+     * {@link RequestType#CHUNKED} uploads are split into several requests by {@link ChunkedUpload}.
+     */
+    UploadClient.ServerResponse upload(RequestType requestType, String url, InputStream inputStream) throws IOException;
+
+    /**
+     * Sends a single request with a small body, as used by the control requests of a chunked upload.
+     *
+     * @param body sent as {@code application/octet-stream}, {@code null} for none
+     */
+    UploadClient.ServerResponse exchange(String method, String url, Map<String, String> headers, byte[] body) throws IOException;
+
+    @Override
+    void close() throws IOException;
+
+    /**
+     * @param maxConnections connections kept open to the server, HTTP/2 clients multiplex over a single one
+     */
+    static UploadTransport create(ClientType clientType, int maxConnections) {
+        return switch (clientType) {
+            case APACHE_HTTP5 -> new ApacheHttp5Transport(maxConnections);
+            case APACHE_HTTP5_ASYNC -> new ApacheHttp5AsyncTransport(maxConnections, false);
+            case APACHE_HTTP5_H2C -> new ApacheHttp5AsyncTransport(maxConnections, true);
+            case OK_HTTP -> new OkHttpTransport(maxConnections, false);
+            case OK_HTTP_H2C -> new OkHttpTransport(maxConnections, true);
+            case SPRING_WEB_FLUX -> new WebFluxTransport(maxConnections, false);
+            case SPRING_WEB_FLUX_H2C -> new WebFluxTransport(maxConnections, true);
+            case JDK_HTTP -> new JdkHttpTransport(HttpClient.Version.HTTP_1_1);
+            case JDK_HTTP_H2C -> new JdkHttpTransport(HttpClient.Version.HTTP_2);
+        };
+    }
+}
@@ -0,0 +1,88 @@
+package de.qaware.multipart.client;
+
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.InputStream;
+import java.util.Map;
+
+class WebFluxTransport implements UploadTransport {
+    private final ConnectionProvider connectionProvider;
+    private final WebClient client;
+
+    /**
+     * @param h2c speak HTTP/2 with prior knowledge, all uploads share one connection
+     */
+    WebFluxTransport(int maxConnections, boolean h2c) {
+        this.connectionProvider = ConnectionProvider.create("upload", maxConnections);
+        HttpClient httpClient = HttpClient.create(connectionProvider);
+        if (h2c) {
+            httpClient = httpClient.protocol(HttpProtocol.H2C);
+        }
+        this.client = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+
+    @Override
+    public UploadClient.ServerResponse upload(RequestType requestType, String url, InputStream inputStream) {
+        BodyInserter<?, ? super ClientHttpRequest> body = switch (requestType) {
+            case MULTIPART, MULTIPART_FILE -> {
+                MultipartBodyBuilder builder = new MultipartBodyBuilder();
+                builder.part(UploadClient.FILE_NAME, new InputStreamResource(inputStream), MediaType.APPLICATION_OCTET_STREAM);
+                yield BodyInserters.fromMultipartData(builder.build());
+            }
+            case SINGLE_PART -> BodyInserters.fromResource(new InputStreamResource(inputStream));
+            default -> throw new IllegalArgumentException("Request type not supported");
+        };
+        return retrieve(client.post()
+                .uri(url)
+                .body(body));
+    }
+
+    @Override
+    public UploadClient.ServerResponse exchange(String method, String url, Map<String, String> headers, byte[] body) {
+        WebClient.RequestBodySpec request = client.method(HttpMethod.valueOf(method))
+                .uri(url)
+                .headers(httpHeaders -> headers.forEach(httpHeaders::set));
+        if (body == null) {
+            return retrieve(request);
+        }
+        return retrieve(request
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .bodyValue(body));
+    }
+
+    private static UploadClient.ServerResponse retrieve(WebClient.RequestHeadersSpec<?> request) {
+        ResponseEntity<String> response = request
+                .retrieve()
+                // Error responses are reported like any other response
+                .onStatus(HttpStatus::isError, clientResponse -> Mono.empty())
+                .toEntity(String.class)
+                .block();
+        if (response != null) {
+            String responseBody = response.getBody();
+            return new UploadClient.ServerResponse(response.getStatusCodeValue(), responseBody == null ? "" : responseBody,
+                    response.getHeaders().toSingleValueMap());
+        }
+        return new UploadClient.ServerResponse(0, "");
+    }
+
+    @Override
+    public void close() {
+        connectionProvider.dispose();
+    }
+}
@@ -0,0 +1,177 @@
+package de.qaware.multipart.common;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pool of reusable buffers in power-of-two size classes with a hard limit on the number of bytes it allocates.
+ * If the limit is reached, {@link #acquire(int)} waits for buffers to be released and fails with
+ * {@link BufferPoolExhaustedException} once the acquire timeout has elapsed.
+ */
+public class BufferPool {
+    private final long capacity;
+    private final int minBufferSize;
+    private final boolean direct;
+    private final long acquireTimeoutNanos;
+    private final ArrayDeque<ByteBuffer>[] freeBuffers;
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition released = lock.newCondition();
+
+    private long allocatedBytes;
+    private long leasedBytes;
+    private int waiting;
+    private long rejected;
+
+    @SuppressWarnings("unchecked")
+    public BufferPool(long capacity, int minBufferSize, int maxBufferSize, boolean direct, Duration acquireTimeout) {
+        if (Integer.bitCount(minBufferSize) != 1 || Integer.bitCount(maxBufferSize) != 1 || minBufferSize > maxBufferSize) {
+            throw new IllegalArgumentException("Buffer sizes must be powers of two with min <= max!");
+        }
+        if (capacity < maxBufferSize) {
+            throw new IllegalArgumentException("Capacity must hold at least one buffer of the maximum size!");
+        }
+
+        this.capacity = capacity;
+        this.minBufferSize = minBufferSize;
+        this.direct = direct;
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+        int sizeClasses = Integer.numberOfTrailingZeros(maxBufferSize) - Integer.numberOfTrailingZeros(minBufferSize) + 1;
+        this.freeBuffers = new ArrayDeque[sizeClasses];
+        for (int i = 0; i < sizeClasses; i++) {
+            freeBuffers[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * Leases a buffer with at least {@code size} bytes. Its limit is set to {@code size}.
+     */
+    public PooledBuffer acquire(int size) throws BufferPoolExhaustedException, InterruptedException {
+        int sizeClass = sizeClass(size);
+        int classSize = minBufferSize << sizeClass;
+
+        ByteBuffer buffer = null;
+        lock.lock();
+        try {
+            long remainingNanos = acquireTimeoutNanos;
+            while (buffer == null) {
+                buffer = freeBuffers[sizeClass].pollFirst();
+                if (buffer == null && reserve(classSize)) {
+                    break;
+                }
+                if (buffer == null) {
+                    if (remainingNanos <= 0) {
+                        rejected++;
+                        throw new BufferPoolExhaustedException("No buffer of " + classSize + " bytes available within "
+                                + TimeUnit.NANOSECONDS.toMillis(acquireTimeoutNanos) + " ms");
+                    }
+                    waiting++;
+                    try {
+                        remainingNanos = released.awaitNanos(remainingNanos);
+                    } finally {
+                        waiting--;
+                    }
+                }
+            }
+            leasedBytes += classSize;
+        } finally {
+            lock.unlock();
+        }
+
+        if (buffer == null) {
+            buffer = direct ? ByteBuffer.allocateDirect(classSize) : ByteBuffer.allocate(classSize);
+        }
+        buffer.clear().limit(size);
+        return new PooledBuffer(this, buffer);
+    }
+
+    void release(ByteBuffer buffer) {
+        lock.lock();
+        try {
+            freeBuffers[sizeClass(buffer.capacity())].addFirst(buffer);
+            leasedBytes -= buffer.capacity();
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Accounts for a new buffer, dropping idle buffers of other size classes if that is needed to stay within capacity.
+     */
+    private boolean reserve(int classSize) {
+        for (int i = freeBuffers.length - 1; i >= 0 && allocatedBytes + classSize > capacity; i--) {
+            while (!freeBuffers[i].isEmpty() && allocatedBytes + classSize > capacity) {
+                allocatedBytes -= freeBuffers[i].pollLast().capacity();
+            }
+        }
+        if (allocatedBytes + classSize > capacity) {
+            return false;
+        }
+        allocatedBytes += classSize;
+        return true;
+    }
+
+    private int sizeClass(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Buffer size must be at least one byte!");
+        }
+        int sizeClass = Math.max(0, 32 - Integer.numberOfLeadingZeros(size - 1) - Integer.numberOfTrailingZeros(minBufferSize));
+        if (sizeClass >= freeBuffers.length) {
+            throw new IllegalArgumentException("Buffer size " + size + " exceeds the maximum buffer size "
+                    + (minBufferSize << (freeBuffers.length - 1)));
+        }
+        return sizeClass;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * Bytes held by the pool, whether leased or idle.
+     */
+    public long getAllocatedBytes() {
+        lock.lock();
+        try {
+            return allocatedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getLeasedBytes() {
+        lock.lock();
+        try {
+            return leasedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getWaiting() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRejected() {
+        lock.lock();
+        try {
+            return rejected;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
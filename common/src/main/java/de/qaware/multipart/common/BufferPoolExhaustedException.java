@@ -0,0 +1,9 @@
+package de.qaware.multipart.common;
+
+import java.io.IOException;
+
+public class BufferPoolExhaustedException extends IOException {
+    public BufferPoolExhaustedException(String message) {
+        super(message);
+    }
+}
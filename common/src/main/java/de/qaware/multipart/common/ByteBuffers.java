@@ -0,0 +1,137 @@
+package de.qaware.multipart.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Stream helpers that work for heap as well as direct buffers and avoid intermediate copies for heap buffers.
+ */
+public final class ByteBuffers {
+    private static final int TRANSFER_SIZE = 8 * 1024;
+    /**
+     * Transfer array for direct buffers, reused by the calls on the same thread. It is taken out while in use, so
+     * a stream which calls these helpers itself gets an array of its own.
+     */
+    private static final ThreadLocal<byte[]> TRANSFER = new ThreadLocal<>();
+
+    private ByteBuffers() {
+    }
+
+    /**
+     * Reads from the stream until the buffer has no remaining space or the stream ends.
+     * The buffer is flipped afterwards, so it is ready to be read from.
+     *
+     * @return number of bytes read, zero at the end of the stream
+     */
+    public static int readFully(InputStream inputStream, ByteBuffer buffer) throws IOException {
+        int start = buffer.position();
+        if (buffer.hasArray()) {
+            int n = inputStream.readNBytes(buffer.array(), buffer.arrayOffset() + start, buffer.remaining());
+            buffer.position(start + n);
+        } else {
+            byte[] transfer = takeTransfer();
+            try {
+                while (buffer.hasRemaining()) {
+                    int n = inputStream.read(transfer, 0, Math.min(transfer.length, buffer.remaining()));
+                    if (n < 0) {
+                        break;
+                    }
+                    buffer.put(transfer, 0, n);
+                }
+            } finally {
+                TRANSFER.set(transfer);
+            }
+        }
+        buffer.flip();
+        return buffer.limit() - start;
+    }
+
+    /**
+     * Writes the remaining bytes of the buffer to the stream, the buffer has no remaining bytes afterwards.
+     */
+    public static void writeFully(ByteBuffer buffer, OutputStream outputStream) throws IOException {
+        if (buffer.hasArray()) {
+            outputStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+        } else {
+            byte[] transfer = takeTransfer();
+            try {
+                while (buffer.hasRemaining()) {
+                    int n = Math.min(transfer.length, buffer.remaining());
+                    buffer.get(transfer, 0, n);
+                    outputStream.write(transfer, 0, n);
+                }
+            } finally {
+                TRANSFER.set(transfer);
+            }
+        }
+    }
+
+    private static byte[] takeTransfer() {
+        byte[] transfer = TRANSFER.get();
+        if (transfer == null) {
+            return new byte[TRANSFER_SIZE];
+        }
+        TRANSFER.set(null);
+        return transfer;
+    }
+
+    /**
+     * Stream over the remaining bytes of the buffer. Reading does not change the position of the given buffer.
+     */
+    public static InputStream asInputStream(ByteBuffer buffer) {
+        ByteBuffer view = buffer.slice();
+        return new InputStream() {
+            @Override
+            public int read() {
+                return view.hasRemaining() ? view.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (len == 0) {
+                    return 0;
+                }
+                if (!view.hasRemaining()) {
+                    return -1;
+                }
+                int n = Math.min(len, view.remaining());
+                view.get(b, off, n);
+                return n;
+            }
+
+            @Override
+            public int available() {
+                return view.remaining();
+            }
+        };
+    }
+
+    /**
+     * Stream writing into the remaining space of the buffer. Writing more bytes than fit fails with an
+     * {@link IOException}.
+     */
+    public static OutputStream asOutputStream(ByteBuffer buffer) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                checkSpace(1);
+                buffer.put((byte) b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                checkSpace(len);
+                buffer.put(b, off, len);
+            }
+
+            private void checkSpace(int len) throws IOException {
+                if (buffer.remaining() < len) {
+                    throw new IOException("Buffer has only " + buffer.remaining() + " bytes left, can not write " + len);
+                }
+            }
+        };
+    }
+}
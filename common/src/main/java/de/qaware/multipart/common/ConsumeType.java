@@ -1,6 +1,7 @@
-package de.qaware.multipart;
+package de.qaware.multipart.common;
 
 public enum ConsumeType {
     NULL,
     BLOB,
+    FILE,
 }
@@ -0,0 +1,81 @@
+package de.qaware.multipart.common;
+
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+
+/**
+ * Finds chunk boundaries by the content with a gear rolling hash, so inserting or removing bytes only changes the
+ * chunks around the edit. Chunks are normalized towards the average size: before it a boundary needs one more zero
+ * bit of the hash, after it one less.
+ */
+public class ContentDefinedChunker {
+    private static final long[] GEAR = createGear();
+
+    private final int minChunkSize;
+    private final int avgChunkSize;
+    private final int maxChunkSize;
+    private final long smallMask;
+    private final long largeMask;
+
+    public ContentDefinedChunker(int minChunkSize, int avgChunkSize, int maxChunkSize) {
+        if (Integer.bitCount(avgChunkSize) != 1 || minChunkSize < 1 || minChunkSize > avgChunkSize || avgChunkSize > maxChunkSize) {
+            throw new IllegalArgumentException("Chunk sizes must satisfy 0 < min <= avg <= max with avg a power of two!");
+        }
+        this.minChunkSize = minChunkSize;
+        this.avgChunkSize = avgChunkSize;
+        this.maxChunkSize = maxChunkSize;
+        int bits = Integer.numberOfTrailingZeros(avgChunkSize);
+        this.smallMask = highBits(bits + 1);
+        this.largeMask = highBits(Math.max(1, bits - 1));
+    }
+
+    public int getMaxChunkSize() {
+        return maxChunkSize;
+    }
+
+    /**
+     * Length of the chunk starting at the position of the buffer. Fewer than {@code maxChunkSize} remaining bytes
+     * are taken as the end of the data. The buffer is not changed.
+     */
+    public int cut(ByteBuffer data) {
+        int start = data.position();
+        int remaining = data.remaining();
+        if (remaining <= minChunkSize) {
+            return remaining;
+        }
+        int end = Math.min(remaining, maxChunkSize);
+        int normal = Math.min(end, avgChunkSize);
+        long hash = 0;
+        int i = minChunkSize;
+        for (; i < normal; i++) {
+            hash = (hash << 1) + GEAR[data.get(start + i) & 0xFF];
+            if ((hash & smallMask) == 0) {
+                return i + 1;
+            }
+        }
+        for (; i < end; i++) {
+            hash = (hash << 1) + GEAR[data.get(start + i) & 0xFF];
+            if ((hash & largeMask) == 0) {
+                return i + 1;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * The shifted hash depends on the last 64 bytes, its high bits mix the most of them.
+     */
+    private static long highBits(int bits) {
+        return -1L << (Long.SIZE - bits);
+    }
+
+    private static long[] createGear() {
+        // Fixed seed, boundaries must not change between runs or the stored chunks would no longer match
+        SplittableRandom random = new SplittableRandom(0x5EED_C0DEL);
+        long[] gear = new long[256];
+        for (int i = 0; i < gear.length; i++) {
+            gear[i] = random.nextLong();
+        }
+        return gear;
+    }
+}
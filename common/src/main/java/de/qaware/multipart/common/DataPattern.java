@@ -0,0 +1,19 @@
+package de.qaware.multipart.common;
+
+/**
+ * Kind of data produced by {@link RandomInputStream}.
+ */
+public enum DataPattern {
+    /**
+     * Blocks of a single repeated random byte, compresses extremely well.
+     */
+    BLOCKS,
+    /**
+     * Text-like sequence of words from a fixed random vocabulary, compresses like natural language.
+     */
+    TEXT,
+    /**
+     * Uniformly random bytes which do not compress at all.
+     */
+    INCOMPRESSIBLE,
+}
@@ -5,41 +5,44 @@ import lombok.RequiredArgsConstructor;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
-import java.util.LinkedHashMap;
-import java.util.Map;
 
 @RequiredArgsConstructor
 public class MeteredOutputStream extends OutputStream {
     private final OutputStream outputStream;
     @Getter
-    private final Map<Long, Long> map = new LinkedHashMap<>();
+    private final ThroughputMeter meter;
 
-    private long numBytes = 0;
+    public MeteredOutputStream(OutputStream outputStream) {
+        this(outputStream, new ThroughputMeter());
+    }
 
     @Override
     public void write(int b) throws IOException {
-        numBytes++;
-        long now = System.currentTimeMillis();
-        long key = now / 10_000_000;
-        map.put(key, numBytes);
         outputStream.write(b);
+        meter.record(1);
     }
 
     @Override
     public void write(byte[] b, int off, int len) throws IOException {
-        long before = System.currentTimeMillis();
         outputStream.write(b, off, len);
-        numBytes += len;
-        long after = System.currentTimeMillis();
-        long now = (before + after) / 2;
-        long key = now / 10_000_000;
-        map.put(key, numBytes);
+        meter.record(len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        outputStream.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        outputStream.close();
+    }
+
+    public long getNumBytes() {
+        return meter.getTotalBytes();
     }
 
     public void toCsv(OutputStream outputStream) throws IOException {
-        for (var entry : map.entrySet()) {
-            outputStream.write(((entry.getKey() * 10) + ";" + entry.getValue() + "\n").getBytes(StandardCharsets.UTF_8));
-        }
+        meter.toCsv(outputStream, ';');
     }
 }
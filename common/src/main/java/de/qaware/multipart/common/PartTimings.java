@@ -0,0 +1,12 @@
+package de.qaware.multipart.common;
+
+/**
+ * Where the time of storing a part went.
+ *
+ * @param parseMicros reading the part, which includes waiting for it to arrive
+ * @param hashMicros  computing its digests, overlaps with storing when hashing is offloaded to another thread
+ * @param storeMicros writing it to the sink
+ * @param totalMicros from handing the part to the sink until it was stored
+ */
+public record PartTimings(long parseMicros, long hashMicros, long storeMicros, long totalMicros) {
+}
@@ -0,0 +1,43 @@
+package de.qaware.multipart.common;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A buffer leased from a {@link BufferPool}. Closing it hands the buffer back to the pool.
+ */
+public class PooledBuffer implements AutoCloseable {
+    private final BufferPool pool;
+    private ByteBuffer buffer;
+
+    PooledBuffer(BufferPool pool, ByteBuffer buffer) {
+        this.pool = pool;
+        this.buffer = buffer;
+    }
+
+    public ByteBuffer buffer() {
+        if (buffer == null) {
+            throw new IllegalStateException("Buffer has already been released");
+        }
+        return buffer;
+    }
+
+    /**
+     * Backing array of a heap buffer. Its length may exceed the requested size, use {@link #size()} instead.
+     */
+    public byte[] array() {
+        return buffer().array();
+    }
+
+    public int size() {
+        return buffer().limit();
+    }
+
+    @Override
+    public void close() {
+        if (buffer != null) {
+            ByteBuffer released = buffer;
+            buffer = null;
+            pool.release(released);
+        }
+    }
+}
@@ -1,26 +1,78 @@
 package de.qaware.multipart.common;
 
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.Random;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.SplittableRandom;
 
+/**
+ * Reproducible test data. The produced bytes only depend on size, block size, seed and pattern,
+ * not on how the stream is read.
+ */
 public class RandomInputStream extends InputStream {
-    private final Random random;
+    private static final int PAGE_SIZE = 8 * 1024;
+    private static final int TRANSFER_SIZE = 64 * 1024;
+    private static final int VOCABULARY_SIZE = 1024;
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    // State of the linear congruential generator of java.util.Random, kept inline to avoid its atomic updates
+    private long randomState;
     private final long size;
     private final long blockSize;
+    private final DataPattern pattern;
     private long currentBlockSize;
     private int lastUsedByte;
     private long index;
 
+    // Generated data of the TEXT and INCOMPRESSIBLE patterns
+    private SplittableRandom generator;
+    private byte[] page;
+    private int pagePosition;
+    private byte[][] vocabulary;
+    private short[] wordDistribution;
+    private byte[] word;
+    private int wordPosition;
+    private long wordBits;
+    private int wordBitsLeft;
+
     public RandomInputStream(long size, long blockSize, long seed) {
+        this(size, blockSize, seed, DataPattern.BLOCKS);
+    }
+
+    /**
+     * @param blockSize only used by {@link DataPattern#BLOCKS}
+     */
+    public RandomInputStream(long size, long blockSize, long seed, DataPattern pattern) {
         if (blockSize < 1) {
             throw new IllegalArgumentException("Block size must be at least one byte!");
         }
 
         this.size = size;
         this.blockSize = blockSize;
+        this.pattern = Objects.requireNonNull(pattern);
         this.currentBlockSize = blockSize;
-        this.random = new Random(seed);
-        this.lastUsedByte = random.nextInt(255);
+        this.randomState = (seed ^ MULTIPLIER) & MASK;
+        this.lastUsedByte = nextBlockByte();
+        if (pattern != DataPattern.BLOCKS) {
+            this.generator = new SplittableRandom(seed);
+            this.page = new byte[PAGE_SIZE];
+            this.pagePosition = PAGE_SIZE;
+            if (pattern == DataPattern.TEXT) {
+                this.vocabulary = createVocabulary();
+                this.wordDistribution = createWordDistribution();
+                this.word = vocabulary[0];
+                this.wordPosition = word.length;
+            }
+        }
     }
 
     @Override
@@ -29,8 +81,16 @@ public class RandomInputStream extends InputStream {
             return -1;
         }
 
+        if (pattern != DataPattern.BLOCKS) {
+            if (pagePosition == PAGE_SIZE) {
+                fillPage();
+            }
+            index++;
+            return page[pagePosition++] & 0xFF;
+        }
+
         if (index == currentBlockSize) {
-            lastUsedByte = random.nextInt(255);
+            lastUsedByte = nextBlockByte();
             currentBlockSize += blockSize;
         }
 
@@ -38,4 +98,132 @@ public class RandomInputStream extends InputStream {
 
         return lastUsedByte;
     }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        if (index == size) {
+            return -1;
+        }
+
+        int numBytes = (int) Math.min(len, size - index);
+        int end = off + numBytes;
+        while (off < end) {
+            int n;
+            if (pattern == DataPattern.BLOCKS) {
+                if (index == currentBlockSize) {
+                    lastUsedByte = nextBlockByte();
+                    currentBlockSize += blockSize;
+                }
+                n = (int) Math.min(end - off, currentBlockSize - index);
+                Arrays.fill(b, off, off + n, (byte) lastUsedByte);
+            } else {
+                if (pagePosition == PAGE_SIZE) {
+                    fillPage();
+                }
+                n = Math.min(end - off, PAGE_SIZE - pagePosition);
+                System.arraycopy(page, pagePosition, b, off, n);
+                pagePosition += n;
+            }
+            off += n;
+            index += n;
+        }
+        return numBytes;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, size - index);
+    }
+
+    @Override
+    public long transferTo(OutputStream out) throws IOException {
+        byte[] buffer = new byte[TRANSFER_SIZE];
+        long transferred = 0;
+        int n;
+        while ((n = read(buffer, 0, buffer.length)) > 0) {
+            out.write(buffer, 0, n);
+            transferred += n;
+        }
+        return transferred;
+    }
+
+    /**
+     * Same result as {@code java.util.Random.nextInt(255)} for the same seed.
+     */
+    private int nextBlockByte() {
+        int bits;
+        int value;
+        do {
+            randomState = (randomState * MULTIPLIER + ADDEND) & MASK;
+            bits = (int) (randomState >>> 17);
+            value = bits % 255;
+        } while (bits - value + 254 < 0);
+        return value;
+    }
+
+    private void fillPage() {
+        if (pattern == DataPattern.INCOMPRESSIBLE) {
+            for (int i = 0; i < PAGE_SIZE; i += Long.BYTES) {
+                LONG_VIEW.set(page, i, generator.nextLong());
+            }
+        } else {
+            // The last word of a page is continued on the next one
+            int position = Math.min(PAGE_SIZE, word.length - wordPosition);
+            System.arraycopy(word, wordPosition, page, 0, position);
+            wordPosition += position;
+            while (position < PAGE_SIZE) {
+                byte[] next = nextWord();
+                int n = Math.min(PAGE_SIZE - position, next.length);
+                System.arraycopy(next, 0, page, position, n);
+                position += n;
+                word = next;
+                wordPosition = n;
+            }
+        }
+        pagePosition = 0;
+    }
+
+    private byte[] nextWord() {
+        // One random long selects four words
+        if (wordBitsLeft == 0) {
+            wordBits = generator.nextLong();
+            wordBitsLeft = 4;
+        }
+        int selector = (int) (wordBits & 0xFFFF);
+        wordBits >>>= 16;
+        wordBitsLeft--;
+        return vocabulary[wordDistribution[selector]];
+    }
+
+    /**
+     * Maps 16 random bits to a word index, skewed towards the start of the vocabulary,
+     * so some words are far more frequent than others.
+     */
+    private static short[] createWordDistribution() {
+        short[] distribution = new short[1 << 16];
+        for (int i = 0; i < distribution.length; i++) {
+            double u = (double) i / distribution.length;
+            distribution[i] = (short) (u * u * u * VOCABULARY_SIZE);
+        }
+        return distribution;
+    }
+
+    private byte[][] createVocabulary() {
+        byte[][] words = new byte[VOCABULARY_SIZE][];
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            int length = 2 + generator.nextInt(9);
+            int separator = generator.nextInt(20);
+            String suffix = separator == 0 ? ".\n" : separator < 3 ? ", " : " ";
+            StringBuilder builder = new StringBuilder(length + suffix.length());
+            for (int j = 0; j < length; j++) {
+                builder.append((char) ('a' + generator.nextInt(26)));
+            }
+            words[i] = builder.append(suffix).toString().getBytes(StandardCharsets.US_ASCII);
+        }
+        return words;
+    }
 }
@@ -0,0 +1,41 @@
+package de.qaware.multipart.common;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Provides the files a {@link SpoolBuffer} spills to.
+ */
+public interface SpillFiles {
+
+    /**
+     * @return a file open for reading and writing, which is written from the start regardless of its length
+     */
+    FileChannel acquire() throws IOException;
+
+    /**
+     * Takes back a file once neither the writer nor the reader of the spool buffer use it anymore.
+     */
+    void release(FileChannel channel) throws IOException;
+
+    /**
+     * A new temporary file for every spool buffer, deleted on release.
+     */
+    static SpillFiles temporary(Path directory) {
+        return new SpillFiles() {
+            @Override
+            public FileChannel acquire() throws IOException {
+                return FileChannel.open(Files.createTempFile(directory, "spool-", ".tmp"),
+                        StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+            }
+
+            @Override
+            public void release(FileChannel channel) throws IOException {
+                channel.close();
+            }
+        };
+    }
+}
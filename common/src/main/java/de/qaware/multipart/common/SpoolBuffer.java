@@ -0,0 +1,339 @@
+package de.qaware.multipart.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands data from one writer to one reader running concurrently. Up to {@code memoryLimit} bytes are held in
+ * pooled chunks. If the reader falls further behind, the writer either blocks or, if a spill directory is
+ * configured, appends all further data to a temporary file the reader continues from.
+ * <p>
+ * The writer calls {@link #finish()} or {@link #fail(Throwable)}, the reader closes the buffer when it is done.
+ * The spill file is released once both have happened.
+ */
+public class SpoolBuffer implements AutoCloseable {
+    private final BufferPool bufferPool;
+    private final int chunkSize;
+    private final long memoryLimit;
+    private final SpillFiles spillFiles;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final ArrayDeque<PooledBuffer> chunks = new ArrayDeque<>();
+    private long memoryBytes;
+    private boolean finished;
+    private boolean closed;
+    private Throwable failure;
+    private FileChannel spillChannel;
+    private boolean spillReleased;
+    private long spilledBytes;
+
+    // Only accessed by the writer
+    private PooledBuffer writeChunk;
+    private long writePosition;
+
+    /**
+     * @param spillDirectory directory for the temporary file, {@code null} to block the writer instead
+     */
+    public SpoolBuffer(BufferPool bufferPool, int chunkSize, long memoryLimit, Path spillDirectory) {
+        this(bufferPool, chunkSize, memoryLimit, spillDirectory == null ? null : SpillFiles.temporary(spillDirectory));
+    }
+
+    /**
+     * @param spillFiles source of the file to spill to, {@code null} to block the writer instead
+     */
+    public SpoolBuffer(BufferPool bufferPool, int chunkSize, long memoryLimit, SpillFiles spillFiles) {
+        if (memoryLimit < chunkSize) {
+            throw new IllegalArgumentException("Memory limit must hold at least one chunk!");
+        }
+        this.bufferPool = bufferPool;
+        this.chunkSize = chunkSize;
+        this.memoryLimit = memoryLimit;
+        this.spillFiles = spillFiles;
+    }
+
+    /**
+     * Copies the remaining bytes of the buffer.
+     */
+    public void write(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            if (spillChannel != null) {
+                spill(data);
+                return;
+            }
+            if (writeChunk == null && !reserveChunk()) {
+                continue;
+            }
+            ByteBuffer buffer = writeChunk.buffer();
+            int n = Math.min(buffer.remaining(), data.remaining());
+            buffer.put(data.slice(data.position(), n));
+            data.position(data.position() + n);
+            if (!buffer.hasRemaining()) {
+                publishChunk();
+            }
+        }
+    }
+
+    public void write(byte[] b, int off, int len) throws IOException {
+        write(ByteBuffer.wrap(b, off, len));
+    }
+
+    /**
+     * Signals that all data has been written.
+     */
+    public void finish() throws IOException {
+        if (writeChunk != null && writeChunk.buffer().position() > 0) {
+            publishChunk();
+        } else {
+            releaseWriteChunk();
+        }
+        lock.lock();
+        try {
+            finished = true;
+            changed.signalAll();
+            releaseSpillFile();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Signals that the writer failed, the reader receives the failure as cause of an {@link IOException}.
+     */
+    public void fail(Throwable cause) {
+        releaseWriteChunk();
+        lock.lock();
+        try {
+            failure = cause;
+            changed.signalAll();
+            releaseSpillFile();
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The stream of all written data. There must only be one reader.
+     */
+    public InputStream newInputStream() {
+        return new SpoolInputStream();
+    }
+
+    public boolean isSpilled() {
+        lock.lock();
+        try {
+            return spillChannel != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases all buffers and, once the writer is done as well, the spill file. A writer which is still active
+     * fails with an exception.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            chunks.forEach(PooledBuffer::close);
+            chunks.clear();
+            changed.signalAll();
+            releaseSpillFile();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return false if the writer has to spill instead
+     */
+    private boolean reserveChunk() throws IOException {
+        lock.lock();
+        try {
+            while (!closed && memoryBytes + chunkSize > memoryLimit && spillFiles == null) {
+                changed.await();
+            }
+            checkOpen();
+            if (memoryBytes + chunkSize > memoryLimit) {
+                spillChannel = spillFiles.acquire();
+                return false;
+            }
+            memoryBytes += chunkSize;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the reader");
+        } finally {
+            lock.unlock();
+        }
+
+        boolean acquired = false;
+        try {
+            writeChunk = bufferPool.acquire(chunkSize);
+            acquired = true;
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a free buffer");
+        } finally {
+            if (!acquired) {
+                unreserveChunk();
+            }
+        }
+    }
+
+    private void unreserveChunk() {
+        lock.lock();
+        try {
+            memoryBytes -= chunkSize;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void publishChunk() throws IOException {
+        writeChunk.buffer().flip();
+        lock.lock();
+        try {
+            if (closed) {
+                releaseWriteChunk();
+                checkOpen();
+            }
+            chunks.addLast(writeChunk);
+            writeChunk = null;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void spill(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            writePosition += spillChannel.write(data, writePosition);
+        }
+        lock.lock();
+        try {
+            checkOpen();
+            spilledBytes = writePosition;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The writer must not write to a file which is already handed out again, so the file is only released once the
+     * writer is done and the reader has closed the buffer. Must be called with the lock held.
+     */
+    private void releaseSpillFile() throws IOException {
+        if (spillChannel != null && !spillReleased && closed && (finished || failure != null)) {
+            spillReleased = true;
+            spillFiles.release(spillChannel);
+        }
+    }
+
+    private void releaseWriteChunk() {
+        if (writeChunk != null) {
+            writeChunk.close();
+            writeChunk = null;
+            unreserveChunk();
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Spool buffer has been closed");
+        }
+    }
+
+    private class SpoolInputStream extends InputStream {
+        private PooledBuffer readChunk;
+        private long readPosition;
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int n = read(b, 0, 1);
+            return n < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (true) {
+                if (readChunk != null) {
+                    ByteBuffer buffer = readChunk.buffer();
+                    if (buffer.hasRemaining()) {
+                        int n = Math.min(len, buffer.remaining());
+                        buffer.get(b, off, n);
+                        return n;
+                    }
+                    releaseReadChunk();
+                }
+
+                FileChannel channel;
+                long available;
+                lock.lock();
+                try {
+                    while (true) {
+                        checkOpen();
+                        if (failure != null) {
+                            throw new IOException("Writing to spool buffer failed", failure);
+                        }
+                        readChunk = chunks.pollFirst();
+                        if (readChunk != null || readPosition < spilledBytes) {
+                            break;
+                        }
+                        if (finished) {
+                            return -1;
+                        }
+                        changed.await();
+                    }
+                    channel = spillChannel;
+                    available = spilledBytes - readPosition;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the writer");
+                } finally {
+                    lock.unlock();
+                }
+
+                if (readChunk == null) {
+                    int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, available)), readPosition);
+                    readPosition += n;
+                    return n;
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            releaseReadChunk();
+            SpoolBuffer.this.close();
+        }
+
+        private void releaseReadChunk() {
+            if (readChunk != null) {
+                readChunk.close();
+                readChunk = null;
+                unreserveChunk();
+            }
+        }
+    }
+}
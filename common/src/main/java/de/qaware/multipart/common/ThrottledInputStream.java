@@ -0,0 +1,58 @@
+package de.qaware.multipart.common;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits reads to a fixed number of bytes per second to simulate slow clients.
+ */
+public class ThrottledInputStream extends FilterInputStream {
+    private final long bytesPerSecond;
+    private final long startNanos = System.nanoTime();
+    private long numBytes;
+
+    public ThrottledInputStream(InputStream inputStream, long bytesPerSecond) {
+        super(inputStream);
+        if (bytesPerSecond < 1) {
+            throw new IllegalArgumentException("Rate must be at least one byte per second!");
+        }
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    @Override
+    public int read() throws IOException {
+        throttle();
+        int b = super.read();
+        if (b >= 0) {
+            numBytes++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        throttle();
+        // Keep single reads to about a tenth of a second worth of data
+        int n = super.read(b, off, (int) Math.min(len, Math.max(1, bytesPerSecond / 10)));
+        if (n > 0) {
+            numBytes += n;
+        }
+        return n;
+    }
+
+    private void throttle() throws InterruptedIOException {
+        long dueNanos = startNanos + TimeUnit.SECONDS.toNanos(1) * numBytes / bytesPerSecond;
+        long waitNanos = dueNanos - System.nanoTime();
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while throttling");
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package de.qaware.multipart.common;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records the cumulative number of transferred bytes per fixed time interval.
+ * The intervals are kept in a preallocated ring, so recording neither allocates nor locks.
+ * Once the ring is full the oldest intervals are overwritten.
+ */
+public class ThroughputMeter {
+    public static final long DEFAULT_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    public static final int DEFAULT_CAPACITY = 16 * 1024;
+
+    private static final long EMPTY = -1;
+
+    private final long startNanos = System.nanoTime();
+    private final long startMillis = System.currentTimeMillis();
+    private final long intervalNanos;
+    private final int mask;
+    private final AtomicLongArray intervals;
+    private final AtomicLongArray cumulativeBytes;
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    public ThroughputMeter() {
+        this(DEFAULT_INTERVAL_NANOS, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param intervalNanos length of one interval
+     * @param capacity      number of intervals kept, must be a power of two
+     */
+    public ThroughputMeter(long intervalNanos, int capacity) {
+        if (intervalNanos < 1) {
+            throw new IllegalArgumentException("Interval must be at least one nanosecond!");
+        }
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two!");
+        }
+
+        this.intervalNanos = intervalNanos;
+        this.mask = capacity - 1;
+        this.intervals = new AtomicLongArray(capacity);
+        this.cumulativeBytes = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            intervals.set(i, EMPTY);
+        }
+    }
+
+    public void record(long numBytes) {
+        long total = totalBytes.addAndGet(numBytes);
+        long interval = (System.nanoTime() - startNanos) / intervalNanos;
+        int slot = (int) (interval & mask);
+        long current;
+        while ((current = intervals.get(slot)) < interval) {
+            // First record in this interval, the slot still holds an older one
+            if (intervals.compareAndSet(slot, current, interval)) {
+                break;
+            }
+        }
+        // Totals only grow, so the bytes of the older interval are replaced by the maximum as well and concurrent
+        // records of the same interval never lower the value
+        if (current <= interval && cumulativeBytes.get(slot) < total) {
+            cumulativeBytes.accumulateAndGet(slot, total, Math::max);
+        }
+    }
+
+    public long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    /**
+     * Writes one line per recorded interval: the wall-clock start of the interval in milliseconds
+     * and the cumulative number of bytes at its end.
+     */
+    public void toCsv(OutputStream outputStream, char separator) throws IOException {
+        long last = EMPTY;
+        for (int i = 0; i <= mask; i++) {
+            last = Math.max(last, intervals.get(i));
+        }
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        for (long interval = Math.max(0, last - mask); interval <= last; interval++) {
+            int slot = (int) (interval & mask);
+            long bytes = cumulativeBytes.get(slot);
+            if (intervals.get(slot) == interval) {
+                long timestamp = startMillis + TimeUnit.NANOSECONDS.toMillis(interval * intervalNanos);
+                writer.write(Long.toString(timestamp));
+                writer.write(separator);
+                writer.write(Long.toString(bytes));
+                writer.write('\n');
+            }
+        }
+        writer.flush();
+    }
+}
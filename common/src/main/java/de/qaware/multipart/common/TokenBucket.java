@@ -0,0 +1,80 @@
+package de.qaware.multipart.common;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket with one token per byte, shared by all streams of a client. The state is the time at
+ * which the bucket will be full again, so taking tokens is a single compare-and-set and cheap enough for every read.
+ * Tokens can always be taken, a caller exceeding the burst has to wait until its share is due.
+ */
+public class TokenBucket {
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final long bytesPerSecond;
+    private final long burstNanos;
+    private final AtomicLong fullAtNanos = new AtomicLong(System.nanoTime());
+
+    public TokenBucket(long bytesPerSecond, long burstBytes) {
+        if (bytesPerSecond < 1) {
+            throw new IllegalArgumentException("Rate must be at least one byte per second!");
+        }
+        this.bytesPerSecond = bytesPerSecond;
+        this.burstNanos = toNanos(burstBytes);
+    }
+
+    /**
+     * Takes the tokens right away.
+     *
+     * @return nanoseconds until the tokens would have been available, zero if they were
+     */
+    public long take(long numBytes) {
+        long cost = toNanos(numBytes);
+        while (true) {
+            long now = System.nanoTime();
+            long fullAt = fullAtNanos.get();
+            long newFullAt = Math.max(fullAt, now) + cost;
+            if (fullAtNanos.compareAndSet(fullAt, newFullAt)) {
+                return Math.max(0, newFullAt - now - burstNanos);
+            }
+        }
+    }
+
+    /**
+     * Takes the tokens and waits until they are due.
+     *
+     * @return nanoseconds waited
+     */
+    public long acquire(long numBytes) throws InterruptedIOException {
+        long waitNanos = take(numBytes);
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for tokens");
+            }
+        }
+        return waitNanos;
+    }
+
+    /**
+     * Nanoseconds the next caller would have to wait, even for a single byte.
+     */
+    public long getDebtNanos() {
+        return Math.max(0, fullAtNanos.get() - System.nanoTime() - burstNanos);
+    }
+
+    /**
+     * True if the bucket is full, i.e. forgetting it does not change any limit.
+     */
+    public boolean isFull() {
+        return fullAtNanos.get() - System.nanoTime() <= 0;
+    }
+
+    private long toNanos(long numBytes) {
+        // Doubles do not overflow for large bursts and are precise enough for scheduling
+        return (long) ((double) numBytes * NANOS_PER_SECOND / bytesPerSecond);
+    }
+}
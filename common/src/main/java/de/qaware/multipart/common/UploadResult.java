@@ -0,0 +1,23 @@
+package de.qaware.multipart.common;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * @param checksums  hex encoded checksums by algorithm name
+ * @param documentId id of the stored document, {@code null} if the data was not stored
+ * @param timings    {@code null} if the server does not measure them
+ */
+public record UploadResult(long bytes, long crc32, Map<String, String> checksums, UUID documentId, PartTimings timings) {
+    public UploadResult(long bytes, long crc32, Map<String, String> checksums, UUID documentId) {
+        this(bytes, crc32, checksums, documentId, null);
+    }
+
+    public UploadResult(long bytes, long crc32, Map<String, String> checksums) {
+        this(bytes, crc32, checksums, null);
+    }
+
+    public UploadResult(long bytes, long crc32) {
+        this(bytes, crc32, Map.of());
+    }
+}
@@ -0,0 +1,13 @@
+package de.qaware.multipart.common.checksum;
+
+/**
+ * Digest of a single {@link ChecksumAlgorithm}.
+ */
+public interface AlgorithmDigest extends Digest {
+    ChecksumAlgorithm getAlgorithm();
+
+    /**
+     * Final value as lower case hex string.
+     */
+    String getValue();
+}
@@ -0,0 +1,141 @@
+package de.qaware.multipart.common.checksum;
+
+import net.jpountz.xxhash.StreamingXXHash64;
+import net.jpountz.xxhash.XXHashFactory;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+
+public enum ChecksumAlgorithm {
+    CRC32,
+    /**
+     * Castagnoli CRC, computed with the CPU's CRC32 instructions where available.
+     */
+    CRC32C,
+    XXHASH64,
+    /**
+     * Only for comparing against {@code Content-MD5} sent by clients.
+     */
+    MD5,
+    SHA256,
+    ;
+
+    private static final XXHashFactory XX_HASH_FACTORY = XXHashFactory.fastestInstance();
+    private static final int COPY_SIZE = 8 * 1024;
+
+    public AlgorithmDigest create() {
+        return switch (this) {
+            case CRC32 -> new ChecksumDigest(this, new CRC32());
+            case CRC32C -> new ChecksumDigest(this, new CRC32C());
+            case XXHASH64 -> new XxHashDigest(XX_HASH_FACTORY.newStreamingHash64(0));
+            case MD5 -> new MessageDigestDigest(this, messageDigest("MD5"));
+            case SHA256 -> new MessageDigestDigest(this, messageDigest("SHA-256"));
+        };
+    }
+
+    /**
+     * Parses a comma separated list of algorithm names, e.g. {@code "crc32c, sha256"}.
+     */
+    public static Set<ChecksumAlgorithm> parse(String algorithms) {
+        Set<ChecksumAlgorithm> result = EnumSet.noneOf(ChecksumAlgorithm.class);
+        for (String name : algorithms.split(",")) {
+            if (!name.isBlank()) {
+                result.add(valueOf(name.trim().replace("-", "").toUpperCase(Locale.ROOT)));
+            }
+        }
+        return result;
+    }
+
+    private static MessageDigest messageDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(algorithm + " is not available", e);
+        }
+    }
+
+    private record ChecksumDigest(ChecksumAlgorithm algorithm, Checksum checksum) implements AlgorithmDigest {
+        @Override
+        public void update(ByteBuffer data) {
+            checksum.update(data);
+        }
+
+        @Override
+        public void update(byte[] b, int off, int len) {
+            checksum.update(b, off, len);
+        }
+
+        @Override
+        public ChecksumAlgorithm getAlgorithm() {
+            return algorithm;
+        }
+
+        @Override
+        public String getValue() {
+            return HexFormat.of().toHexDigits((int) checksum.getValue());
+        }
+    }
+
+    private record MessageDigestDigest(ChecksumAlgorithm algorithm, MessageDigest messageDigest) implements AlgorithmDigest {
+        @Override
+        public void update(ByteBuffer data) {
+            messageDigest.update(data);
+        }
+
+        @Override
+        public void update(byte[] b, int off, int len) {
+            messageDigest.update(b, off, len);
+        }
+
+        @Override
+        public ChecksumAlgorithm getAlgorithm() {
+            return algorithm;
+        }
+
+        @Override
+        public String getValue() {
+            return HexFormat.of().formatHex(messageDigest.digest());
+        }
+    }
+
+    private record XxHashDigest(StreamingXXHash64 hash) implements AlgorithmDigest {
+        @Override
+        public void update(ByteBuffer data) {
+            if (data.hasArray()) {
+                update(data.array(), data.arrayOffset() + data.position(), data.remaining());
+                data.position(data.limit());
+                return;
+            }
+            // The streaming hash only accepts arrays
+            byte[] copy = new byte[Math.min(COPY_SIZE, data.remaining())];
+            while (data.hasRemaining()) {
+                int n = Math.min(copy.length, data.remaining());
+                data.get(copy, 0, n);
+                hash.update(copy, 0, n);
+            }
+        }
+
+        @Override
+        public void update(byte[] b, int off, int len) {
+            hash.update(b, off, len);
+        }
+
+        @Override
+        public ChecksumAlgorithm getAlgorithm() {
+            return XXHASH64;
+        }
+
+        @Override
+        public String getValue() {
+            return HexFormat.of().toHexDigits(hash.getValue());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package de.qaware.multipart.common.checksum;
+
+/**
+ * Combines the CRC32 of two consecutive pieces of data into the CRC32 of both, as {@code crc32_combine} of zlib.
+ * Appending {@code length2} bytes is a linear operator on the CRC, which is applied by repeated squaring.
+ */
+public final class Crc32Combine {
+    private static final int POLYNOMIAL = 0xEDB88320;
+
+    private Crc32Combine() {
+    }
+
+    /**
+     * @param crc1    CRC32 of the first piece
+     * @param crc2    CRC32 of the second piece
+     * @param length2 length of the second piece in bytes
+     */
+    public static long combine(long crc1, long crc2, long length2) {
+        if (length2 <= 0) {
+            return crc1;
+        }
+        int[] odd = new int[32];
+        int[] even = new int[32];
+        // Operator for one zero bit
+        odd[0] = POLYNOMIAL;
+        int row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        // Operators for two and four zero bits
+        square(even, odd);
+        square(odd, even);
+
+        int crc = (int) crc1;
+        long remaining = length2;
+        do {
+            // Each round doubles the number of zero bytes of the operator
+            square(even, odd);
+            if ((remaining & 1) != 0) {
+                crc = times(even, crc);
+            }
+            remaining >>>= 1;
+            if (remaining == 0) {
+                break;
+            }
+            square(odd, even);
+            if ((remaining & 1) != 0) {
+                crc = times(odd, crc);
+            }
+            remaining >>>= 1;
+        } while (remaining != 0);
+        return Integer.toUnsignedLong(crc ^ (int) crc2);
+    }
+
+    private static int times(int[] matrix, int vector) {
+        int sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void square(int[] square, int[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = times(matrix, matrix[n]);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package de.qaware.multipart.common.checksum;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Incrementally computed checksum or hash.
+ */
+public interface Digest {
+    /**
+     * Consumes the remaining bytes of the buffer.
+     */
+    void update(ByteBuffer data);
+
+    default void update(byte[] b, int off, int len) {
+        update(ByteBuffer.wrap(b, off, len));
+    }
+}
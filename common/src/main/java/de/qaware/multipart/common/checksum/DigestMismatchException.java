@@ -0,0 +1,12 @@
+package de.qaware.multipart.common.checksum;
+
+import java.io.IOException;
+
+/**
+ * The data does not match a digest announced by the client.
+ */
+public class DigestMismatchException extends IOException {
+    public DigestMismatchException(String message) {
+        super(message);
+    }
+}
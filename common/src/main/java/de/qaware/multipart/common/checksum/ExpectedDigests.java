@@ -0,0 +1,92 @@
+package de.qaware.multipart.common.checksum;
+
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Digests a client announced for its data with {@code Content-MD5} (RFC 1864), {@code Digest} (RFC 3230) or
+ * {@code Content-Digest} (RFC 9530). Values are kept hex encoded like the computed ones, algorithms without a
+ * matching {@link ChecksumAlgorithm} are ignored.
+ *
+ * @param values hex encoded digests by algorithm
+ */
+public record ExpectedDigests(Map<ChecksumAlgorithm, String> values) {
+    public static final ExpectedDigests NONE = new ExpectedDigests(Map.of());
+
+    public static final String CONTENT_MD5_HEADER = "Content-MD5";
+    public static final String DIGEST_HEADER = "Digest";
+    public static final String CONTENT_DIGEST_HEADER = "Content-Digest";
+
+    /**
+     * @param contentMd5    base64 encoded MD5, may be {@code null}
+     * @param digest        value of the {@code Digest} header, may be {@code null}
+     * @param contentDigest value of the {@code Content-Digest} header, may be {@code null}
+     * @throws IllegalArgumentException if a value is malformed
+     */
+    public static ExpectedDigests parse(String contentMd5, String digest, String contentDigest) {
+        Map<ChecksumAlgorithm, String> values = new EnumMap<>(ChecksumAlgorithm.class);
+        if (contentMd5 != null && !contentMd5.isBlank()) {
+            values.put(ChecksumAlgorithm.MD5, decode(contentMd5));
+        }
+        parseDigestField(digest, values);
+        parseDigestField(contentDigest, values);
+        return values.isEmpty() ? NONE : new ExpectedDigests(values);
+    }
+
+    public Set<ChecksumAlgorithm> algorithms() {
+        return values.keySet();
+    }
+
+    /**
+     * @param actual computed values, have to include all {@link #algorithms()}
+     * @throws DigestMismatchException if any of the values differs
+     */
+    public void verify(Map<ChecksumAlgorithm, String> actual) throws DigestMismatchException {
+        for (Map.Entry<ChecksumAlgorithm, String> expected : values.entrySet()) {
+            String value = actual.get(expected.getKey());
+            if (value == null) {
+                throw new IllegalStateException(expected.getKey() + " has not been computed");
+            }
+            if (!value.equalsIgnoreCase(expected.getValue())) {
+                throw new DigestMismatchException(expected.getKey() + " of the data is " + value
+                        + " but the client announced " + expected.getValue());
+            }
+        }
+    }
+
+    /**
+     * Both fields are lists of {@code algorithm=value}, RFC 9530 wraps the value in colons.
+     */
+    private static void parseDigestField(String field, Map<ChecksumAlgorithm, String> values) {
+        if (field == null || field.isBlank()) {
+            return;
+        }
+        for (String entry : field.split(",")) {
+            int separator = entry.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Malformed digest: " + entry.trim());
+            }
+            ChecksumAlgorithm algorithm = switch (entry.substring(0, separator).trim().toLowerCase(Locale.ROOT)) {
+                case "md5" -> ChecksumAlgorithm.MD5;
+                case "sha-256" -> ChecksumAlgorithm.SHA256;
+                case "crc32c" -> ChecksumAlgorithm.CRC32C;
+                default -> null;
+            };
+            if (algorithm != null) {
+                String value = entry.substring(separator + 1).trim();
+                if (value.length() >= 2 && value.startsWith(":") && value.endsWith(":")) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                values.put(algorithm, decode(value));
+            }
+        }
+    }
+
+    private static String decode(String base64) {
+        return HexFormat.of().formatHex(Base64.getDecoder().decode(base64.trim()));
+    }
+}
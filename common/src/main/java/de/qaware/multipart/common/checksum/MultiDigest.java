@@ -0,0 +1,49 @@
+package de.qaware.multipart.common.checksum;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Computes several digests over the same data in one pass.
+ */
+public class MultiDigest implements Digest {
+    private final List<AlgorithmDigest> digests;
+
+    public MultiDigest(Set<ChecksumAlgorithm> algorithms) {
+        this.digests = algorithms.stream().map(ChecksumAlgorithm::create).toList();
+    }
+
+    @Override
+    public void update(ByteBuffer data) {
+        if (digests.size() == 1) {
+            digests.get(0).update(data);
+            return;
+        }
+        int position = data.position();
+        for (AlgorithmDigest digest : digests) {
+            data.position(position);
+            digest.update(data);
+        }
+    }
+
+    @Override
+    public void update(byte[] b, int off, int len) {
+        for (AlgorithmDigest digest : digests) {
+            digest.update(b, off, len);
+        }
+    }
+
+    /**
+     * Final values by algorithm, can only be called once.
+     */
+    public Map<ChecksumAlgorithm, String> getValues() {
+        Map<ChecksumAlgorithm, String> values = new LinkedHashMap<>();
+        for (AlgorithmDigest digest : digests) {
+            values.put(digest.getAlgorithm(), digest.getValue());
+        }
+        return values;
+    }
+}
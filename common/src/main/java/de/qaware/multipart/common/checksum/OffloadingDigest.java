@@ -0,0 +1,215 @@
+package de.qaware.multipart.common.checksum;
+
+import de.qaware.multipart.common.BufferPool;
+import de.qaware.multipart.common.PooledBuffer;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Updates the delegate on the calling thread for the first {@code threshold} bytes. Once more data arrives,
+ * it is copied into pooled chunks and handed to a worker over a bounded queue, so hashing large parts runs on
+ * another core. The caller blocks when the queue is full. If the executor rejects the worker, e.g. because all
+ * of its threads are busy, the part is hashed on the calling thread instead.
+ */
+public class OffloadingDigest implements Digest, AutoCloseable {
+    private static final long PUT_POLL_MILLIS = 10;
+
+    private final Digest delegate;
+    private final BufferPool bufferPool;
+    private final Executor executor;
+    private final long threshold;
+    private final int chunkSize;
+    private final BlockingQueue<Chunk> queue;
+
+    private long numBytes;
+    private PooledBuffer current;
+    private CompletableFuture<Void> worker;
+    private boolean inline;
+    private boolean ended;
+    private volatile Throwable failure;
+
+    public OffloadingDigest(Digest delegate, BufferPool bufferPool, Executor executor, long threshold, int chunkSize,
+                            int queueDepth) {
+        this.delegate = delegate;
+        this.bufferPool = bufferPool;
+        this.executor = executor;
+        this.threshold = threshold;
+        this.chunkSize = chunkSize;
+        this.queue = new ArrayBlockingQueue<>(queueDepth);
+    }
+
+    @Override
+    public void update(ByteBuffer data) {
+        try {
+            offer(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Same as {@link #update(ByteBuffer)} but reports failures to hand off data as checked exceptions.
+     */
+    public void offer(ByteBuffer data) throws IOException {
+        if (worker == null && !inline && numBytes + data.remaining() > threshold) {
+            try {
+                worker = CompletableFuture.runAsync(this::drain, executor);
+            } catch (RejectedExecutionException e) {
+                inline = true;
+            }
+        }
+        if (worker == null) {
+            numBytes += data.remaining();
+            delegate.update(data);
+            return;
+        }
+        checkFailure();
+        numBytes += data.remaining();
+        while (data.hasRemaining()) {
+            if (current == null) {
+                current = acquire();
+            }
+            ByteBuffer buffer = current.buffer();
+            int n = Math.min(buffer.remaining(), data.remaining());
+            buffer.put(data.slice(data.position(), n));
+            data.position(data.position() + n);
+            if (!buffer.hasRemaining()) {
+                handOff();
+            }
+        }
+    }
+
+    /**
+     * Waits until all handed off data has been digested. The delegate may be read afterwards.
+     */
+    public void await() throws IOException {
+        if (worker == null) {
+            return;
+        }
+        if (!ended) {
+            if (current != null && current.buffer().position() > 0) {
+                handOff();
+            }
+            end();
+        }
+        try {
+            worker.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the digest");
+        } catch (ExecutionException e) {
+            throw new IOException("Computing digest failed", e.getCause());
+        }
+        checkFailure();
+    }
+
+    /**
+     * Stops the worker without waiting for the digest, e.g. if the upload failed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (worker != null && !ended) {
+            end();
+        }
+    }
+
+    public long getNumBytes() {
+        return numBytes;
+    }
+
+    /**
+     * Takes chunks until the end, also after a failure or an interrupt, so the producer never blocks on a full queue
+     * and every chunk goes back to the pool.
+     */
+    private void drain() {
+        boolean interrupted = false;
+        while (true) {
+            Chunk next;
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                failure = e;
+                interrupted = true;
+                continue;
+            }
+            if (next == Chunk.END) {
+                break;
+            }
+            try (PooledBuffer handedOff = next.buffer()) {
+                if (failure == null) {
+                    delegate.update(handedOff.buffer());
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void end() throws IOException {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+        ended = true;
+        put(Chunk.END);
+    }
+
+    private void handOff() throws IOException {
+        current.buffer().flip();
+        PooledBuffer handedOff = current;
+        current = null;
+        put(new Chunk(handedOff));
+    }
+
+    /**
+     * Stops waiting for space once the digest failed, except for the end which the worker needs to finish.
+     */
+    private void put(Chunk chunk) throws IOException {
+        try {
+            while (!queue.offer(chunk, PUT_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (failure != null && chunk != Chunk.END) {
+                    chunk.buffer().close();
+                    checkFailure();
+                }
+            }
+        } catch (InterruptedException e) {
+            if (chunk.buffer() != null) {
+                chunk.buffer().close();
+            }
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while handing off data to digest");
+        }
+    }
+
+    private PooledBuffer acquire() throws IOException {
+        try {
+            return bufferPool.acquire(chunkSize);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a free buffer");
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw new IOException("Computing digest failed", failure);
+        }
+    }
+
+    private record Chunk(PooledBuffer buffer) {
+        static final Chunk END = new Chunk(null);
+    }
+}
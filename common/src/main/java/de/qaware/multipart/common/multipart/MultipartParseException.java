@@ -0,0 +1,9 @@
+package de.qaware.multipart.common.multipart;
+
+import java.io.IOException;
+
+public class MultipartParseException extends IOException {
+    public MultipartParseException(String message) {
+        super(message);
+    }
+}
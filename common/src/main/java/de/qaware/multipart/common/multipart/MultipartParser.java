@@ -0,0 +1,225 @@
+package de.qaware.multipart.common.multipart;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Push-style parser for {@code multipart/*} bodies. The body can be fed in chunks of any size, part content is
+ * handed to the {@link PartHandler} as views on the fed buffers. Only up to one delimiter length of bytes at the
+ * end of a chunk is copied, because it might be the beginning of a delimiter which continues in the next chunk.
+ * <p>
+ * Delimiters are searched with Boyer-Moore-Horspool. Instances are not thread-safe.
+ */
+public class MultipartParser {
+    private static final int MAX_HEADER_SIZE = 16 * 1024;
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final byte DASH = '-';
+
+    private enum State {PREAMBLE, AFTER_DELIMITER, HEADERS, BODY, EPILOGUE}
+
+    private final PartHandler handler;
+    private final byte[] delimiter;
+    private final int[] shift = new int[256];
+    // Possible start of a delimiter from the previous chunk, followed by the start of the current chunk
+    private final byte[] joint;
+    private final ByteBuffer jointBuffer;
+    private final byte[] headerBytes = new byte[MAX_HEADER_SIZE];
+
+    private State state = State.PREAMBLE;
+    private int carryLength;
+    private int headerLength;
+    private byte afterDelimiter;
+
+    public MultipartParser(byte[] boundary, PartHandler handler) {
+        if (boundary.length < 1 || boundary.length > 70) {
+            throw new IllegalArgumentException("Boundary must have between 1 and 70 bytes!");
+        }
+
+        this.handler = handler;
+        this.delimiter = new byte[boundary.length + 4];
+        delimiter[0] = CR;
+        delimiter[1] = LF;
+        delimiter[2] = DASH;
+        delimiter[3] = DASH;
+        System.arraycopy(boundary, 0, delimiter, 4, boundary.length);
+
+        Arrays.fill(shift, delimiter.length);
+        for (int i = 0; i < delimiter.length - 1; i++) {
+            shift[delimiter[i] & 0xFF] = delimiter.length - 1 - i;
+        }
+
+        this.joint = new byte[2 * delimiter.length];
+        this.jointBuffer = ByteBuffer.wrap(joint);
+        // The first delimiter may appear without a preceding line break
+        joint[0] = CR;
+        joint[1] = LF;
+        carryLength = 2;
+    }
+
+    /**
+     * Parses all remaining bytes of the buffer.
+     */
+    public void feed(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            switch (state) {
+                case PREAMBLE, BODY -> {
+                    if (carryLength > 0) {
+                        scanJoint(data);
+                    } else {
+                        scan(data);
+                    }
+                }
+                case AFTER_DELIMITER -> afterDelimiter(data.get());
+                case HEADERS -> header(data.get());
+                case EPILOGUE -> data.position(data.limit());
+            }
+        }
+    }
+
+    /**
+     * Signals the end of the body.
+     *
+     * @throws MultipartParseException if the closing delimiter has not been seen
+     */
+    public void finish() throws IOException {
+        if (state != State.EPILOGUE) {
+            throw new MultipartParseException("Multipart body ended before the closing delimiter");
+        }
+    }
+
+    public boolean isFinished() {
+        return state == State.EPILOGUE;
+    }
+
+    private void scan(ByteBuffer data) throws IOException {
+        int position = data.position();
+        int limit = data.limit();
+        int index = indexOf(data, position, limit);
+        if (index >= 0) {
+            emit(data, position, index);
+            data.position(index + delimiter.length);
+            delimiterFound();
+            return;
+        }
+
+        int keep = partialMatch(data, Math.max(position, limit - delimiter.length + 1), limit);
+        emit(data, position, limit - keep);
+        data.get(limit - keep, joint, 0, keep);
+        carryLength = keep;
+        data.position(limit);
+    }
+
+    private void scanJoint(ByteBuffer data) throws IOException {
+        int position = data.position();
+        int appended = Math.min(delimiter.length, data.remaining());
+        data.get(position, joint, carryLength, appended);
+        int jointLength = carryLength + appended;
+
+        int index = indexOf(jointBuffer, 0, jointLength);
+        if (index >= 0 && index < carryLength) {
+            emit(jointBuffer, 0, index);
+            data.position(position + index + delimiter.length - carryLength);
+            carryLength = 0;
+            delimiterFound();
+        } else if (index >= 0 || appended == delimiter.length) {
+            // No delimiter starts in the carried bytes, the rest is found by scanning the chunk itself
+            emit(jointBuffer, 0, carryLength);
+            carryLength = 0;
+        } else {
+            int keep = partialMatch(jointBuffer, Math.max(0, jointLength - delimiter.length + 1), jointLength);
+            emit(jointBuffer, 0, jointLength - keep);
+            System.arraycopy(joint, jointLength - keep, joint, 0, keep);
+            carryLength = keep;
+            data.position(data.limit());
+        }
+    }
+
+    private void afterDelimiter(byte b) throws IOException {
+        if (afterDelimiter == DASH) {
+            if (b != DASH) {
+                throw new MultipartParseException("Invalid character after closing delimiter: " + (b & 0xFF));
+            }
+            state = State.EPILOGUE;
+        } else if (afterDelimiter == CR) {
+            if (b != LF) {
+                throw new MultipartParseException("Expected line feed after delimiter but got: " + (b & 0xFF));
+            }
+            state = State.HEADERS;
+            headerLength = 0;
+        } else if (b == DASH || b == CR) {
+            afterDelimiter = b;
+        } else if (b != ' ' && b != '\t') {
+            throw new MultipartParseException("Invalid character after delimiter: " + (b & 0xFF));
+        }
+    }
+
+    private void header(byte b) throws IOException {
+        if (headerLength == MAX_HEADER_SIZE) {
+            throw new MultipartParseException("Part headers exceed " + MAX_HEADER_SIZE + " bytes");
+        }
+        headerBytes[headerLength++] = b;
+        if (b != LF) {
+            return;
+        }
+        boolean noHeaders = headerLength == 2 && headerBytes[0] == CR;
+        boolean endOfHeaders = headerLength >= 4 && headerBytes[headerLength - 2] == CR
+                && headerBytes[headerLength - 3] == LF && headerBytes[headerLength - 4] == CR;
+        if (noHeaders || endOfHeaders) {
+            state = State.BODY;
+            handler.partStarted(PartHeaders.parse(new String(headerBytes, 0, headerLength, StandardCharsets.UTF_8)));
+        }
+    }
+
+    private void delimiterFound() throws IOException {
+        if (state == State.BODY) {
+            handler.partFinished();
+        }
+        state = State.AFTER_DELIMITER;
+        afterDelimiter = 0;
+    }
+
+    private void emit(ByteBuffer data, int from, int to) throws IOException {
+        if (state == State.BODY && to > from) {
+            handler.partData(data.slice(from, to - from));
+        }
+    }
+
+    /**
+     * Boyer-Moore-Horspool search for the delimiter.
+     */
+    private int indexOf(ByteBuffer data, int from, int to) {
+        int last = delimiter.length - 1;
+        int i = from;
+        while (i + last < to) {
+            int j = last;
+            while (data.get(i + j) == delimiter[j]) {
+                if (j == 0) {
+                    return i;
+                }
+                j--;
+            }
+            i += shift[data.get(i + last) & 0xFF];
+        }
+        return -1;
+    }
+
+    /**
+     * Length of the longest suffix of the range which is a prefix of the delimiter.
+     */
+    private int partialMatch(ByteBuffer data, int from, int to) {
+        for (int start = from; start < to; start++) {
+            int length = to - start;
+            int j = 0;
+            while (j < length && data.get(start + j) == delimiter[j]) {
+                j++;
+            }
+            if (j == length) {
+                return length;
+            }
+        }
+        return 0;
+    }
+}
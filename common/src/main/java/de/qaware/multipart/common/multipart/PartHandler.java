@@ -0,0 +1,19 @@
+package de.qaware.multipart.common.multipart;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Receives the parts found by a {@link MultipartParser}.
+ */
+public interface PartHandler {
+    void partStarted(PartHeaders headers) throws IOException;
+
+    /**
+     * Content of the current part. The buffer is a view on the fed data and only valid during the call,
+     * handlers which need the bytes later have to copy them.
+     */
+    void partData(ByteBuffer data) throws IOException;
+
+    void partFinished() throws IOException;
+}
@@ -0,0 +1,106 @@
+package de.qaware.multipart.common.multipart;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Headers of a single part. Header names are case-insensitive.
+ */
+public class PartHeaders {
+    private final Map<String, String> headers;
+
+    public PartHeaders(Map<String, String> headers) {
+        this.headers = new LinkedHashMap<>();
+        headers.forEach((name, value) -> this.headers.put(name.toLowerCase(Locale.ROOT), value));
+    }
+
+    /**
+     * Parses the header block of a part as returned by e.g. {@code MultipartStream.readHeaders()}, lines are
+     * separated by CRLF. For repeated headers the first one wins, lines without a name are ignored.
+     */
+    public static PartHeaders parse(String headerBlock) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        String lastName = null;
+        for (String line : headerBlock.split("\r\n")) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            if ((line.charAt(0) == ' ' || line.charAt(0) == '\t') && lastName != null) {
+                // Folded continuation of the previous header
+                headers.computeIfPresent(lastName, (name, value) -> value + " " + line.trim());
+                continue;
+            }
+            int colon = line.indexOf(':');
+            if (colon < 1) {
+                lastName = null;
+                continue;
+            }
+            String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            lastName = headers.putIfAbsent(name, line.substring(colon + 1).trim()) == null ? name : null;
+        }
+        return new PartHeaders(headers);
+    }
+
+    public String get(String name) {
+        return headers.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    public Map<String, String> asMap() {
+        return Collections.unmodifiableMap(headers);
+    }
+
+    public String getContentType() {
+        return get("Content-Type");
+    }
+
+    /**
+     * Form field name from the {@code Content-Disposition} header.
+     */
+    public String getName() {
+        return dispositionParameter("name");
+    }
+
+    public String getFileName() {
+        return dispositionParameter("filename");
+    }
+
+    /**
+     * Declared size from the {@code Content-Length} header, -1 if the part does not declare one.
+     */
+    public long getContentLength() {
+        String contentLength = get("Content-Length");
+        if (contentLength == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentLength.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String dispositionParameter(String parameter) {
+        String disposition = get("Content-Disposition");
+        if (disposition == null) {
+            return null;
+        }
+        for (String token : disposition.split(";")) {
+            int eq = token.indexOf('=');
+            if (eq > 0 && token.substring(0, eq).trim().equalsIgnoreCase(parameter)) {
+                String value = token.substring(eq + 1).trim();
+                if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                return value;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return headers.toString();
+    }
+}
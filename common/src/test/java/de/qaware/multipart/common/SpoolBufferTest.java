@@ -0,0 +1,183 @@
+package de.qaware.multipart.common;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SpoolBufferTest {
+    private static final int CHUNK_SIZE = 16;
+    private static final long MEMORY_LIMIT = 4 * CHUNK_SIZE;
+
+    @TempDir
+    Path spillDirectory;
+
+    private final BufferPool bufferPool = new BufferPool(64L * CHUNK_SIZE, CHUNK_SIZE, CHUNK_SIZE, false, Duration.ofSeconds(1));
+    private final AtomicInteger acquiredFiles = new AtomicInteger();
+    private final AtomicInteger releasedFiles = new AtomicInteger();
+    private SpillFiles spillFiles;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        // Temporary files which count how often they are handed out and taken back
+        SpillFiles temporary = SpillFiles.temporary(spillDirectory);
+        spillFiles = new SpillFiles() {
+            @Override
+            public FileChannel acquire() throws IOException {
+                acquiredFiles.incrementAndGet();
+                return temporary.acquire();
+            }
+
+            @Override
+            public void release(FileChannel channel) throws IOException {
+                releasedFiles.incrementAndGet();
+                temporary.release(channel);
+            }
+        };
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void keepsDataWithinTheLimitInMemory() throws IOException {
+        byte[] data = data(3 * CHUNK_SIZE + 5);
+        SpoolBuffer spool = new SpoolBuffer(bufferPool, CHUNK_SIZE, MEMORY_LIMIT, spillFiles);
+
+        spool.write(data, 0, data.length);
+        spool.finish();
+
+        try (InputStream inputStream = spool.newInputStream()) {
+            assertThat(inputStream.readAllBytes()).isEqualTo(data);
+        }
+        assertThat(spool.isSpilled()).isFalse();
+        assertThat(acquiredFiles.get()).isZero();
+        assertThat(bufferPool.getLeasedBytes()).isZero();
+    }
+
+    @Test
+    void spillsOnceTheReaderFallsBehind() throws IOException {
+        byte[] data = data(10 * CHUNK_SIZE + 3);
+        SpoolBuffer spool = new SpoolBuffer(bufferPool, CHUNK_SIZE, MEMORY_LIMIT, spillFiles);
+
+        // Nothing is read yet, so everything beyond the memory limit goes to the file without blocking the writer
+        spool.write(data, 0, data.length);
+        spool.finish();
+
+        assertThat(spool.isSpilled()).isTrue();
+        assertThat(acquiredFiles.get()).isEqualTo(1);
+        // The reader still needs the file
+        assertThat(releasedFiles.get()).isZero();
+        try (InputStream inputStream = spool.newInputStream()) {
+            assertThat(inputStream.readAllBytes()).isEqualTo(data);
+        }
+        assertThat(releasedFiles.get()).isEqualTo(1);
+        assertThat(bufferPool.getLeasedBytes()).isZero();
+    }
+
+    @Test
+    void readerClosingEarlyFailsTheWriter() throws Exception {
+        byte[] data = data(20 * CHUNK_SIZE);
+        // Without spill files the writer blocks until the reader makes room
+        SpoolBuffer spool = new SpoolBuffer(bufferPool, CHUNK_SIZE, MEMORY_LIMIT, (SpillFiles) null);
+        Future<?> writer = executor.submit(() -> {
+            try {
+                spool.write(data, 0, data.length);
+                spool.finish();
+            } catch (IOException e) {
+                spool.fail(e);
+                throw e;
+            }
+            return null;
+        });
+
+        try (InputStream inputStream = spool.newInputStream()) {
+            assertThat(inputStream.readNBytes(CHUNK_SIZE)).isEqualTo(data(CHUNK_SIZE));
+        }
+
+        assertThatThrownBy(() -> writer.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IOException.class)
+                .hasRootCauseMessage("Spool buffer has been closed");
+        assertThat(bufferPool.getLeasedBytes()).isZero();
+    }
+
+    @Test
+    void writerFailureReachesTheReader() throws Exception {
+        SpoolBuffer spool = new SpoolBuffer(bufferPool, CHUNK_SIZE, MEMORY_LIMIT, spillFiles);
+        IllegalStateException failure = new IllegalStateException("Client went away");
+        Future<byte[]> reader = executor.submit(() -> {
+            try (InputStream inputStream = spool.newInputStream()) {
+                return inputStream.readAllBytes();
+            }
+        });
+
+        spool.write(data(CHUNK_SIZE + 1), 0, CHUNK_SIZE + 1);
+        spool.fail(failure);
+
+        assertThatThrownBy(() -> reader.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IOException.class)
+                .hasRootCause(failure);
+        assertThat(bufferPool.getLeasedBytes()).isZero();
+    }
+
+    @Test
+    void releasesTheSpillFileOnceWhenTheReaderClosesFirst() throws IOException {
+        SpoolBuffer spool = new SpoolBuffer(bufferPool, CHUNK_SIZE, MEMORY_LIMIT, spillFiles);
+        spool.write(data(10 * CHUNK_SIZE), 0, 10 * CHUNK_SIZE);
+        InputStream inputStream = spool.newInputStream();
+
+        inputStream.close();
+        // The writer may still write to the file until it is done
+        assertThat(releasedFiles.get()).isZero();
+        spool.fail(new IOException("Client went away"));
+        spool.close();
+        inputStream.close();
+
+        assertThat(acquiredFiles.get()).isEqualTo(1);
+        assertThat(releasedFiles.get()).isEqualTo(1);
+        assertThat(bufferPool.getLeasedBytes()).isZero();
+    }
+
+    @Test
+    void releasesTheSpillFileOnceWhenTheWriterFinishesFirst() throws IOException {
+        SpoolBuffer spool = new SpoolBuffer(bufferPool, CHUNK_SIZE, MEMORY_LIMIT, spillFiles);
+        spool.write(data(10 * CHUNK_SIZE), 0, 10 * CHUNK_SIZE);
+        spool.finish();
+
+        spool.close();
+        spool.close();
+
+        assertThat(acquiredFiles.get()).isEqualTo(1);
+        assertThat(releasedFiles.get()).isEqualTo(1);
+        assertThat(bufferPool.getLeasedBytes()).isZero();
+    }
+
+    private static byte[] data(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+}
@@ -0,0 +1,179 @@
+package de.qaware.multipart.common.multipart;
+
+import org.apache.tomcat.util.http.fileupload.MultipartStream;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MultipartParserTest {
+    private static final String BOUNDARY = "8c2b5e1f-boundary";
+    private static final byte[] DELIMITER = ("\r\n--" + BOUNDARY).getBytes(StandardCharsets.ISO_8859_1);
+
+    @Test
+    void matchesTomcatForRandomBodiesAndChunkings() throws IOException {
+        Random random = new Random(42);
+        for (int run = 0; run < 2000; run++) {
+            byte[] body = randomBody(random);
+            List<Part> expected = parseWithTomcat(body);
+
+            assertThat(parse(body, randomChunks(random, body.length)))
+                    .as("run %d", run)
+                    .isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void findsDelimitersSplitAtEveryPosition() throws IOException {
+        byte[] body = body(List.of("first", "second\r\n-", "\r\n--" + BOUNDARY.substring(0, 5)), "", "");
+        List<Part> expected = parseWithTomcat(body);
+        assertThat(expected).extracting(Part::content).containsExactly("first", "second\r\n-", "\r\n--" + BOUNDARY.substring(0, 5));
+
+        for (int split = 0; split <= body.length; split++) {
+            assertThat(parse(body, List.of(split, body.length - split)))
+                    .as("split at %d", split)
+                    .isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void failsWithoutClosingDelimiter() throws IOException {
+        byte[] body = body(List.of("content"), "", "");
+        byte[] truncated = new byte[body.length - 4];
+        System.arraycopy(body, 0, truncated, 0, truncated.length);
+        MultipartParser parser = new MultipartParser(BOUNDARY.getBytes(StandardCharsets.ISO_8859_1), new CollectingPartHandler());
+
+        parser.feed(ByteBuffer.wrap(truncated));
+
+        assertThatThrownBy(parser::finish).isInstanceOf(MultipartParseException.class);
+    }
+
+    private static List<Part> parse(byte[] body, List<Integer> chunkSizes) throws IOException {
+        CollectingPartHandler handler = new CollectingPartHandler();
+        MultipartParser parser = new MultipartParser(BOUNDARY.getBytes(StandardCharsets.ISO_8859_1), handler);
+        int offset = 0;
+        for (int chunkSize : chunkSizes) {
+            // A copy per chunk, so the parser can not read ahead into the next one
+            byte[] chunk = new byte[chunkSize];
+            System.arraycopy(body, offset, chunk, 0, chunkSize);
+            parser.feed(ByteBuffer.wrap(chunk));
+            offset += chunkSize;
+        }
+        parser.finish();
+        return handler.parts;
+    }
+
+    private static List<Part> parseWithTomcat(byte[] body) throws IOException {
+        MultipartStream multipartStream = new MultipartStream(
+                new ByteArrayInputStream(body),
+                BOUNDARY.getBytes(StandardCharsets.ISO_8859_1),
+                4096,
+                null
+        );
+        multipartStream.setHeaderEncoding(StandardCharsets.UTF_8.name());
+        List<Part> parts = new ArrayList<>();
+        boolean hasNext = multipartStream.skipPreamble();
+        while (hasNext) {
+            PartHeaders headers = PartHeaders.parse(multipartStream.readHeaders());
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            multipartStream.readBodyData(content);
+            parts.add(new Part(headers.asMap(), content.toString(StandardCharsets.ISO_8859_1)));
+            hasNext = multipartStream.readBoundary();
+        }
+        return parts;
+    }
+
+    /**
+     * Parts whose content is full of line breaks, dashes and prefixes of the delimiter.
+     */
+    private static byte[] randomBody(Random random) {
+        List<String> contents = new ArrayList<>();
+        int numParts = 1 + random.nextInt(4);
+        for (int i = 0; i < numParts; i++) {
+            StringBuilder content = new StringBuilder();
+            int numTokens = random.nextInt(40);
+            for (int t = 0; t < numTokens; t++) {
+                switch (random.nextInt(5)) {
+                    case 0 -> content.append("\r\n");
+                    case 1 -> content.append('-');
+                    case 2 -> content.append("\r\n--").append(BOUNDARY, 0, random.nextInt(BOUNDARY.length()));
+                    case 3 -> content.append((char) random.nextInt(256));
+                    default -> content.append("x".repeat(random.nextInt(100)));
+                }
+            }
+            // A full delimiter would end the part early
+            String text = content.toString();
+            String delimiter = new String(DELIMITER, StandardCharsets.ISO_8859_1);
+            while (text.contains(delimiter)) {
+                text = text.replace(delimiter, "-");
+            }
+            contents.add(text);
+        }
+        String preamble = random.nextBoolean() ? "" : "This is the preamble.\r\n";
+        String epilogue = random.nextBoolean() ? "" : "This is the epilogue.\r\n";
+        return body(contents, preamble, epilogue);
+    }
+
+    private static byte[] body(List<String> contents, String preamble, String epilogue) {
+        StringBuilder body = new StringBuilder(preamble);
+        for (int i = 0; i < contents.size(); i++) {
+            body.append("--").append(BOUNDARY).append("\r\n")
+                    .append("Content-Disposition: form-data; name=\"part").append(i).append("\"\r\n")
+                    .append("Content-Type: application/octet-stream\r\n\r\n")
+                    .append(contents.get(i))
+                    .append("\r\n");
+        }
+        body.append("--").append(BOUNDARY).append("--\r\n").append(epilogue);
+        return body.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Mostly tiny chunks, so delimiters and headers are split across them in every possible way.
+     */
+    private static List<Integer> randomChunks(Random random, int length) {
+        List<Integer> chunkSizes = new ArrayList<>();
+        for (int remaining = length; remaining > 0; ) {
+            int chunkSize = Math.min(remaining, random.nextBoolean() ? 1 + random.nextInt(DELIMITER.length + 2) : 1 + random.nextInt(512));
+            chunkSizes.add(chunkSize);
+            remaining -= chunkSize;
+        }
+        return chunkSizes;
+    }
+
+    private record Part(Map<String, String> headers, String content) {
+    }
+
+    private static class CollectingPartHandler implements PartHandler {
+        private final List<Part> parts = new ArrayList<>();
+        private Map<String, String> headers;
+        private ByteArrayOutputStream content;
+
+        @Override
+        public void partStarted(PartHeaders headers) {
+            this.headers = headers.asMap();
+            this.content = new ByteArrayOutputStream();
+        }
+
+        @Override
+        public void partData(ByteBuffer data) {
+            byte[] bytes = new byte[data.remaining()];
+            data.get(bytes);
+            content.writeBytes(bytes);
+        }
+
+        @Override
+        public void partFinished() {
+            parts.add(new Part(headers, content.toString(StandardCharsets.ISO_8859_1)));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package de.qaware.multipart.reactive;
+
+import com.azure.core.http.HttpClient;
+import com.azure.core.util.HttpClientOptions;
+import com.azure.storage.blob.BlobContainerAsyncClient;
+import com.azure.storage.blob.BlobServiceClientBuilder;
+import com.azure.storage.blob.models.BlobErrorCode;
+import com.azure.storage.blob.models.BlobStorageException;
+import com.azure.storage.blob.models.ParallelTransferOptions;
+import com.azure.storage.common.StorageSharedKeyCredential;
+import com.azure.storage.common.policy.RequestRetryOptions;
+import com.azure.storage.common.policy.RetryPolicyType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+@Slf4j
+@Service
+public class BlobStorageAzureAsync {
+
+    private final BlobContainerAsyncClient blobContainerClient;
+    private final BlobStorageProperties properties;
+    // Set once the container is known to exist, reset when a request finds it missing
+    private volatile boolean containerInitialized;
+
+    public BlobStorageAzureAsync(BlobStorageProperties properties) {
+        this.properties = properties;
+        BlobStorageProperties.Http http = properties.getHttp();
+        HttpClientOptions httpClientOptions = new HttpClientOptions()
+                .setMaximumConnectionPoolSize(http.getMaxConnections())
+                .setConnectTimeout(http.getConnectTimeout())
+                .setReadTimeout(http.getReadTimeout())
+                .setWriteTimeout(http.getWriteTimeout())
+                .setResponseTimeout(http.getResponseTimeout())
+                .setConnectionIdleTimeout(http.getIdleTimeout());
+        this.blobContainerClient = new BlobServiceClientBuilder()
+                .endpoint(properties.getEndpoint())
+                .credential(new StorageSharedKeyCredential(properties.getAccountName(), properties.getAccountKey()))
+                .httpClient(HttpClient.createDefault(httpClientOptions))
+                .retryOptions(new RequestRetryOptions(RetryPolicyType.EXPONENTIAL, http.getMaxTries(), (Integer) null, null, null, null))
+                .buildAsyncClient()
+                .getBlobContainerAsyncClient(properties.getContainer());
+    }
+
+    public Mono<Void> storeDocument(UUID id, Flux<ByteBuffer> data) {
+        var parallelTransferOptions = new ParallelTransferOptions()
+                .setBlockSizeLong(properties.getBlockSize().toBytes())
+                .setMaxConcurrency(properties.getMaxInFlightBlocks());
+        return getContainerClient()
+                .flatMap(containerClient -> containerClient.getBlobAsyncClient(id.toString())
+                        .upload(data, parallelTransferOptions, true))
+                .doOnNext(blockBlobItem -> log.info("Stored document {}: {}", id, blockBlobItem))
+                .doOnError(BlobStorageException.class, e -> {
+                    if (BlobErrorCode.CONTAINER_NOT_FOUND.equals(e.getErrorCode())) {
+                        containerInitialized = false;
+                    }
+                })
+                .then();
+    }
+
+    private Mono<BlobContainerAsyncClient> getContainerClient() {
+        if (containerInitialized) {
+            return Mono.just(blobContainerClient);
+        }
+        return blobContainerClient.createIfNotExists()
+                .doOnSuccess(created -> containerInitialized = true)
+                .thenReturn(blobContainerClient);
+    }
+}
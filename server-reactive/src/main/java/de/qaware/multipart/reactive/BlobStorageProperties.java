@@ -0,0 +1,48 @@
+package de.qaware.multipart.reactive;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "blob-storage")
+public class BlobStorageProperties {
+    /**
+     * Size of a single staged block.
+     */
+    private DataSize blockSize = DataSize.ofMegabytes(8);
+    /**
+     * Number of blocks of one upload that may be staged concurrently.
+     */
+    private int maxInFlightBlocks = 4;
+    private String endpoint = "http://localhost:10000/devstoreaccount1";
+    private String accountName = "devstoreaccount1";
+    private String accountKey;
+    private String container = "container1";
+    private Http http = new Http();
+
+    /**
+     * Settings of the HTTP client of the storage account.
+     */
+    @Getter
+    @Setter
+    public static class Http {
+        /**
+         * Maximum number of connections to the storage host.
+         */
+        private int maxConnections = 500;
+        private Duration connectTimeout = Duration.ofSeconds(10);
+        private Duration readTimeout = Duration.ofSeconds(60);
+        private Duration writeTimeout = Duration.ofSeconds(60);
+        private Duration responseTimeout = Duration.ofSeconds(60);
+        private Duration idleTimeout = Duration.ofSeconds(60);
+        /**
+         * Attempts of a failed storage request including the first one.
+         */
+        private int maxTries = 4;
+    }
+}
@@ -0,0 +1,66 @@
+package de.qaware.multipart.reactive;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+/**
+ * Stores documents as files in the same layout as the file sink of the servlet server. The data is written to
+ * {@code <id>.part} through an {@link java.nio.channels.AsynchronousFileChannel} and renamed to {@code <id>} once the
+ * metadata is available, its metadata is kept in {@code <id>.properties}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class FileStorageAsync {
+    private final StorageProperties properties;
+
+    /**
+     * @param metadata subscribed after all data has been written, a failure deletes the partial file
+     */
+    public Mono<Void> storeDocument(UUID id, Flux<DataBuffer> data, Mono<Map<String, String>> metadata) {
+        Path directory = properties.getFile().getDirectory();
+        Path partial = directory.resolve(id + ".part");
+        return blocking(() -> Files.createDirectories(directory))
+                .then(DataBufferUtils.write(data, partial, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE))
+                .then(metadata)
+                .flatMap(values -> blocking(() -> {
+                    writeMetadata(directory.resolve(id + ".properties"), values);
+                    return Files.move(partial, directory.resolve(id.toString()), StandardCopyOption.ATOMIC_MOVE);
+                }))
+                .doOnSuccess(document -> log.info("Stored document {} in {}", id, directory))
+                .onErrorResume(e -> blocking(() -> Files.deleteIfExists(partial))
+                        .onErrorResume(deleteFailure -> Mono.empty())
+                        .then(Mono.<Path>error(e)))
+                .then();
+    }
+
+    private static void writeMetadata(Path path, Map<String, String> metadata) throws IOException {
+        Properties file = new Properties();
+        file.putAll(metadata);
+        try (OutputStream outputStream = Files.newOutputStream(path)) {
+            file.store(outputStream, null);
+        }
+    }
+
+    private static <T> Mono<T> blocking(Callable<T> operation) {
+        return Mono.fromCallable(operation).subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,13 @@
+package de.qaware.multipart.reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+
+@SpringBootApplication
+@ConfigurationPropertiesScan
+public class ReactiveApp {
+    public static void main(String[] args) {
+        SpringApplication.run(ReactiveApp.class, args);
+    }
+}
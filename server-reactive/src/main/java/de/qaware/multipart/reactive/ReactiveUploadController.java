@@ -0,0 +1,183 @@
+package de.qaware.multipart.reactive;
+
+import de.qaware.multipart.common.ConsumeType;
+import de.qaware.multipart.common.UploadResult;
+import de.qaware.multipart.common.checksum.DigestMismatchException;
+import de.qaware.multipart.common.checksum.ExpectedDigests;
+import de.qaware.multipart.common.checksum.MultiDigest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.multipart.PartEvent;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+@Slf4j
+@RestController
+@RequestMapping("/api")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class ReactiveUploadController {
+    /**
+     * Selects the sink of a request instead of {@code storage.default-sink}, same header as on the servlet server.
+     */
+    public static final String SINK_HEADER = "X-Storage-Sink";
+    private static final String FILE_NAME = "file1";
+    private final StorageProperties properties;
+    private final BlobStorageAzureAsync blobStorageAzureAsync;
+    private final FileStorageAsync fileStorageAsync;
+
+    @PostMapping(value = "multipart", produces = MediaType.APPLICATION_JSON_VALUE, consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public Mono<List<UploadResult>> storeDocument(@RequestHeader(value = SINK_HEADER, required = false) String sink,
+                                                  @RequestBody Flux<PartEvent> partEvents) {
+        return consumeParts(partEvents, name -> true, select(sink));
+    }
+
+    @PostMapping(value = "multipart/file", produces = MediaType.APPLICATION_JSON_VALUE, consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public Mono<List<UploadResult>> storeFile(@RequestHeader(value = SINK_HEADER, required = false) String sink,
+                                              @RequestBody Flux<PartEvent> partEvents) {
+        return consumeParts(partEvents, FILE_NAME::equals, select(sink));
+    }
+
+    @PostMapping(value = "singlepart", produces = MediaType.APPLICATION_JSON_VALUE, consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public Mono<UploadResult> upload(@RequestHeader HttpHeaders headers, @RequestBody Flux<DataBuffer> body) {
+        return Mono.defer(() -> consumeData(body, expected(headers), select(headers.getFirst(SINK_HEADER))));
+    }
+
+    private ConsumeType select(String header) {
+        if (header == null || header.isBlank()) {
+            return properties.getDefaultSink();
+        }
+        try {
+            return ConsumeType.valueOf(header.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown storage sink in " + SINK_HEADER + ": " + header);
+        }
+    }
+
+    private Mono<List<UploadResult>> consumeParts(Flux<PartEvent> partEvents, Predicate<String> accept, ConsumeType sink) {
+        // Each window holds the events of one part, the first event carries the part headers
+        return partEvents
+                .windowUntil(PartEvent::isLast)
+                .concatMap(events -> events.switchOnFirst((signal, partContent) -> {
+                    if (signal.hasValue() && accept.test(signal.get().name())) {
+                        return Mono.defer(() -> consumeData(partContent.map(PartEvent::content), expected(signal.get().headers()), sink));
+                    }
+                    // Parts arrive in order on the wire, so unwanted ones are drained rather than skipped
+                    return partContent.doOnNext(event -> DataBufferUtils.release(event.content())).then(Mono.<UploadResult>empty());
+                }))
+                .collectList();
+    }
+
+    private Mono<UploadResult> consumeData(Flux<DataBuffer> content, ExpectedDigests expected, ConsumeType sink) {
+        ChecksumAccumulator accumulator = new ChecksumAccumulator(expected);
+        Mono<Void> consumed = switch (sink) {
+            case NULL -> content.doOnNext(dataBuffer -> {
+                accumulator.update(dataBuffer);
+                DataBufferUtils.release(dataBuffer);
+            }).then(accumulator.verify());
+            case BLOB -> {
+                accumulator.documentId = UUID.randomUUID();
+                yield blobStorageAzureAsync.storeDocument(accumulator.documentId, content.map(dataBuffer -> {
+                    // The pooled data buffer is released right away, so the storage client gets its own copy
+                    ByteBuffer copy = ByteBuffer.allocate(dataBuffer.readableByteCount());
+                    dataBuffer.toByteBuffer(copy);
+                    DataBufferUtils.release(dataBuffer);
+                    accumulator.update(copy.duplicate());
+                    return copy;
+                }).concatWith(accumulator.verify().then(Mono.<ByteBuffer>empty())));
+            }
+            case FILE -> {
+                accumulator.documentId = UUID.randomUUID();
+                yield fileStorageAsync.storeDocument(
+                        accumulator.documentId,
+                        content.doOnNext(accumulator::update),
+                        accumulator.verify().then(Mono.fromSupplier(accumulator::toMetadata))
+                );
+            }
+        };
+        return consumed.then(Mono.fromSupplier(accumulator::toUploadResult));
+    }
+
+    private static ExpectedDigests expected(HttpHeaders headers) {
+        try {
+            return ExpectedDigests.parse(
+                    headers.getFirst(ExpectedDigests.CONTENT_MD5_HEADER),
+                    headers.getFirst(ExpectedDigests.DIGEST_HEADER),
+                    headers.getFirst(ExpectedDigests.CONTENT_DIGEST_HEADER)
+            );
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    private static class ChecksumAccumulator {
+        private final Checksum checksum = new CRC32();
+        private final ExpectedDigests expected;
+        // Only computed if the client announced digests
+        private final MultiDigest digest;
+        private long numBytes;
+        private UUID documentId;
+
+        ChecksumAccumulator(ExpectedDigests expected) {
+            this.expected = expected;
+            this.digest = expected.algorithms().isEmpty() ? null : new MultiDigest(expected.algorithms());
+        }
+
+        void update(DataBuffer dataBuffer) {
+            try (DataBuffer.ByteBufferIterator byteBuffers = dataBuffer.readableByteBuffers()) {
+                byteBuffers.forEachRemaining(this::update);
+            }
+        }
+
+        void update(ByteBuffer byteBuffer) {
+            numBytes += byteBuffer.remaining();
+            if (digest != null) {
+                digest.update(byteBuffer.duplicate());
+            }
+            checksum.update(byteBuffer);
+        }
+
+        /**
+         * Completes once the content matches the announced digests. The blob upload only commits after its content
+         * completed, so a mismatch fails it before anything becomes visible.
+         */
+        Mono<Void> verify() {
+            return Mono.defer(() -> {
+                if (digest == null) {
+                    return Mono.empty();
+                }
+                try {
+                    expected.verify(digest.getValues());
+                    return Mono.empty();
+                } catch (DigestMismatchException e) {
+                    return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e));
+                }
+            });
+        }
+
+        Map<String, String> toMetadata() {
+            return Map.of("checksum_crc32", HexFormat.of().toHexDigits((int) checksum.getValue()));
+        }
+
+        UploadResult toUploadResult() {
+            return new UploadResult(numBytes, checksum.getValue(), Map.of(), documentId);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package de.qaware.multipart.reactive;
+
+import de.qaware.multipart.common.ConsumeType;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "storage")
+public class StorageProperties {
+    /**
+     * Sink of requests without a {@value ReactiveUploadController#SINK_HEADER} header.
+     */
+    private ConsumeType defaultSink = ConsumeType.NULL;
+    private File file = new File();
+
+    @Getter
+    @Setter
+    public static class File {
+        private Path directory = Path.of(System.getProperty("java.io.tmpdir"), "multipart-documents");
+    }
+}
@@ -0,0 +1,210 @@
+package de.qaware.multipart;
+
+import de.qaware.multipart.common.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admits uploads. At most {@code max-concurrent-uploads} are processed at once, a bounded number waits for a free
+ * slot and everything beyond is rejected with 503. Each client has its own limit of concurrent uploads (429) and a
+ * token bucket shaping its bandwidth, a client which is far behind its bucket is rejected with 429 as well.
+ */
+@Slf4j
+@Service
+public class AdmissionControl {
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final AdmissionProperties properties;
+    private final Semaphore uploads;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Map<String, Client> clients = new ConcurrentHashMap<>();
+    private volatile long lastSweepNanos = System.nanoTime();
+
+    private final MeterRegistry meterRegistry;
+    private final Timer waitTimer;
+    private final Timer throttleTimer;
+
+    public AdmissionControl(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.uploads = new Semaphore(properties.getMaxConcurrentUploads(), true);
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("admission.active", this, AdmissionControl::getActive)
+                .description("Uploads holding a slot")
+                .register(meterRegistry);
+        Gauge.builder("admission.queued", queued, AtomicInteger::get)
+                .description("Uploads waiting for a slot")
+                .register(meterRegistry);
+        Gauge.builder("admission.clients", clients, Map::size)
+                .description("Clients with uploads or bandwidth debt")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("admission.wait")
+                .description("Time an admitted upload waited for a slot")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.throttleTimer = Timer.builder("admission.throttle")
+                .description("Time a read was delayed by the bandwidth limit of its client")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public String getClientHeader() {
+        return properties.getClientHeader();
+    }
+
+    public int getActive() {
+        return properties.getMaxConcurrentUploads() - uploads.availablePermits();
+    }
+
+    /**
+     * Waits for a slot of the upload, at most for the queue timeout.
+     *
+     * @throws RejectedException if the server or the client is at its limit
+     */
+    public Permit admit(String clientId) throws InterruptedIOException {
+        sweep();
+        // Counted while the entry is locked, so a concurrent sweep cannot drop the client in between
+        int[] active = new int[1];
+        Client client = clients.compute(clientId, (id, existing) -> {
+            Client c = existing == null ? new Client() : existing;
+            active[0] = c.active.incrementAndGet();
+            return c;
+        });
+        if (active[0] > properties.getMaxUploadsPerClient()) {
+            client.active.decrementAndGet();
+            throw reject(HttpStatus.TOO_MANY_REQUESTS, "client-uploads", "Too many concurrent uploads of client", 1);
+        }
+        boolean admitted = false;
+        try {
+            if (client.bucket != null && client.bucket.getDebtNanos() > properties.getQueueTimeout().toNanos()) {
+                throw reject(HttpStatus.TOO_MANY_REQUESTS, "client-bandwidth", "Client exceeds its bandwidth",
+                        TimeUnit.NANOSECONDS.toSeconds(client.bucket.getDebtNanos()) + 1);
+            }
+            acquireSlot();
+            admitted = true;
+            return new Permit(client);
+        } finally {
+            if (!admitted) {
+                client.active.decrementAndGet();
+            }
+        }
+    }
+
+    private void acquireSlot() throws InterruptedIOException {
+        if (uploads.tryAcquire()) {
+            waitTimer.record(0, TimeUnit.NANOSECONDS);
+            return;
+        }
+        if (queued.incrementAndGet() > properties.getMaxQueuedUploads()) {
+            queued.decrementAndGet();
+            throw reject(HttpStatus.SERVICE_UNAVAILABLE, "queue-full", "Too many uploads waiting", retryAfterSeconds());
+        }
+        long tStart = System.nanoTime();
+        try {
+            if (!uploads.tryAcquire(properties.getQueueTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                throw reject(HttpStatus.SERVICE_UNAVAILABLE, "queue-timeout", "No upload slot became free", retryAfterSeconds());
+            }
+            waitTimer.record(System.nanoTime() - tStart, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an upload slot");
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    private RejectedException reject(HttpStatus status, String reason, String message, long retryAfterSeconds) {
+        Counter.builder("admission.rejected")
+                .description("Uploads rejected by admission control")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        log.debug("Rejecting upload: {}", message);
+        return new RejectedException(status, message, retryAfterSeconds);
+    }
+
+    private long retryAfterSeconds() {
+        return Math.max(1, properties.getQueueTimeout().toSeconds());
+    }
+
+    /**
+     * Forgets clients without uploads whose bucket has refilled.
+     */
+    private void sweep() {
+        long now = System.nanoTime();
+        if (now - lastSweepNanos > SWEEP_INTERVAL_NANOS) {
+            lastSweepNanos = now;
+            clients.keySet().forEach(id -> clients.computeIfPresent(id, (key, client) -> client.isIdle() ? null : client));
+        }
+    }
+
+    private class Client {
+        private final AtomicInteger active = new AtomicInteger();
+        private final TokenBucket bucket = properties.getClientBandwidth().toBytes() > 0
+                ? new TokenBucket(properties.getClientBandwidth().toBytes(), properties.getClientBurst().toBytes())
+                : null;
+
+        private boolean isIdle() {
+            return active.get() == 0 && (bucket == null || bucket.isFull());
+        }
+    }
+
+    /**
+     * Slot of an admitted upload, released on close.
+     */
+    public class Permit implements AutoCloseable {
+        private final Client client;
+        private boolean closed;
+
+        private Permit(Client client) {
+            this.client = client;
+        }
+
+        /**
+         * Charges bytes read by the upload to its client and waits if the client is over its bandwidth.
+         */
+        public void consumed(int numBytes) throws InterruptedIOException {
+            if (client.bucket != null && numBytes > 0) {
+                long waitNanos = client.bucket.acquire(numBytes);
+                if (waitNanos > 0) {
+                    throttleTimer.record(waitNanos, TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                uploads.release();
+                client.active.decrementAndGet();
+            }
+        }
+    }
+
+    @Getter
+    public static class RejectedException extends ResponseStatusException {
+        private final long retryAfterSeconds;
+
+        RejectedException(HttpStatus status, String reason, long retryAfterSeconds) {
+            super(status, reason);
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+    }
+}
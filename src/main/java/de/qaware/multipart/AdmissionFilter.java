@@ -0,0 +1,118 @@
+package de.qaware.multipart;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Runs uploads through {@link AdmissionControl} before any of their body is read. Rejected uploads are answered
+ * right away with a {@code Retry-After} header, admitted uploads charge every read to the bandwidth of their client.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class AdmissionFilter extends OncePerRequestFilter {
+    private final AdmissionControl admissionControl;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        boolean upload = ("POST".equals(request.getMethod()) || "PUT".equals(request.getMethod()))
+                && request.getRequestURI().startsWith("/api/")
+                && request.getContentLengthLong() != 0;
+        return !admissionControl.isEnabled() || !upload;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String clientId = request.getHeader(admissionControl.getClientHeader());
+        if (clientId == null || clientId.isBlank()) {
+            clientId = request.getRemoteAddr();
+        }
+        AdmissionControl.Permit permit;
+        try {
+            permit = admissionControl.admit(clientId);
+        } catch (AdmissionControl.RejectedException e) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()));
+            response.sendError(e.getStatusCode().value(), e.getReason());
+            return;
+        }
+        try (permit) {
+            filterChain.doFilter(new ShapedRequest(request, permit), response);
+        }
+    }
+
+    private static class ShapedRequest extends HttpServletRequestWrapper {
+        private final AdmissionControl.Permit permit;
+        private ServletInputStream inputStream;
+
+        ShapedRequest(HttpServletRequest request, AdmissionControl.Permit permit) {
+            super(request);
+            this.permit = permit;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (inputStream == null) {
+                inputStream = new ShapedInputStream(super.getInputStream(), permit);
+            }
+            return inputStream;
+        }
+    }
+
+    private static class ShapedInputStream extends ServletInputStream {
+        private final ServletInputStream inputStream;
+        private final AdmissionControl.Permit permit;
+
+        ShapedInputStream(ServletInputStream inputStream, AdmissionControl.Permit permit) {
+            this.inputStream = inputStream;
+            this.permit = permit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = inputStream.read();
+            if (b >= 0) {
+                permit.consumed(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = inputStream.read(b, off, len);
+            permit.consumed(n);
+            return n;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return inputStream.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return inputStream.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            inputStream.setReadListener(readListener);
+        }
+
+        @Override
+        public void close() throws IOException {
+            inputStream.close();
+        }
+    }
+}
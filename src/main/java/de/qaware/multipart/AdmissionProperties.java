@@ -0,0 +1,43 @@
+package de.qaware.multipart;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "admission")
+public class AdmissionProperties {
+    /**
+     * Limit the uploads processed at once and the bandwidth of each client.
+     */
+    private boolean enabled = false;
+    private int maxConcurrentUploads = 64;
+    /**
+     * Uploads waiting for a free slot, further uploads are rejected with 503 right away.
+     */
+    private int maxQueuedUploads = 64;
+    /**
+     * Time an upload waits for a free slot before it is rejected with 503.
+     */
+    private Duration queueTimeout = Duration.ofSeconds(2);
+    /**
+     * Header naming the client or tenant, the remote address is used without it.
+     */
+    private String clientHeader = "X-Client-Id";
+    /**
+     * Uploads of a single client processed at once, further uploads are rejected with 429.
+     */
+    private int maxUploadsPerClient = 16;
+    /**
+     * Upload bandwidth per client and second, zero for no limit.
+     */
+    private DataSize clientBandwidth = DataSize.ofBytes(0);
+    /**
+     * Bytes a client may send at once before its bandwidth limit applies.
+     */
+    private DataSize clientBurst = DataSize.ofMegabytes(16);
+}
@@ -1,12 +1,15 @@
 package de.qaware.multipart;
 
+import de.qaware.multipart.common.BufferPool;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.context.annotation.Bean;
 import org.springframework.web.multipart.MultipartResolver;
 import org.springframework.web.multipart.support.StandardServletMultipartResolver;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class App {
     public static void main(String[] args) {
         SpringApplication.run(App.class, args);
@@ -20,4 +23,15 @@ public class App {
         standardServletMultipartResolver.setResolveLazily(true);
         return standardServletMultipartResolver;
     }
+
+    @Bean
+    public BufferPool bufferPool(BufferPoolProperties properties) {
+        return new BufferPool(
+                properties.getCapacity().toBytes(),
+                Math.toIntExact(properties.getMinBufferSize().toBytes()),
+                Math.toIntExact(properties.getMaxBufferSize().toBytes()),
+                properties.isDirect(),
+                properties.getAcquireTimeout()
+        );
+    }
 }
@@ -0,0 +1,159 @@
+package de.qaware.multipart;
+
+import com.azure.core.http.HttpClient;
+import com.azure.core.util.HttpClientOptions;
+import com.azure.storage.blob.BlobContainerClient;
+import com.azure.storage.blob.BlobServiceClient;
+import com.azure.storage.blob.BlobServiceClientBuilder;
+import com.azure.storage.blob.models.BlobErrorCode;
+import com.azure.storage.blob.models.BlobStorageException;
+import com.azure.storage.common.StorageSharedKeyCredential;
+import com.azure.storage.common.policy.RequestRetryOptions;
+import com.azure.storage.common.policy.RetryPolicyType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Blob containers of all configured storage accounts. The id of a document determines its container, so uploads
+ * are spread evenly over all containers and accounts. Changing the containers moves existing documents to other
+ * containers, where they are not found anymore.
+ * <p>
+ * A container is created the first time it is used. This is only checked again after a request failed because
+ * the container does not exist.
+ * <p>
+ * The clients are built on first use as well, loading the HTTP stack of the storage SDK is a notable part of
+ * the startup time.
+ */
+@Slf4j
+@Component
+public class BlobContainers {
+    private final BlobStorageProperties properties;
+    /**
+     * Guards building the clients, which may load classes and block, without pinning a virtual thread.
+     */
+    private final ReentrantLock initLock = new ReentrantLock();
+    private volatile List<Shard> shards;
+
+    @Autowired
+    public BlobContainers(BlobStorageProperties properties) {
+        // Misconfiguration still fails the startup
+        if (properties.getAccounts().values().stream().allMatch(account -> account.getContainers().isEmpty())) {
+            throw new IllegalStateException("No blob containers configured in blob-storage.accounts");
+        }
+        this.properties = properties;
+    }
+
+    /**
+     * Uses the given containers as they are, e.g. in-process fakes.
+     */
+    BlobContainers(Map<String, BlobContainerClient> containers) {
+        this.properties = null;
+        this.shards = containers.entrySet().stream().map(entry -> new Shard(entry.getKey(), entry.getValue())).toList();
+    }
+
+    /**
+     * The container of the document, created if necessary.
+     */
+    public BlobContainerClient get(UUID id) {
+        Shard shard = shard(id);
+        if (!shard.initialized) {
+            if (shard.client.createIfNotExists()) {
+                log.info("Created blob container {}", shard.name);
+            }
+            shard.initialized = true;
+        }
+        return shard.client;
+    }
+
+    /**
+     * Checks whether a request for the document failed because its container is gone, it is created again with
+     * the next request then.
+     */
+    public void failed(UUID id, Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BlobStorageException e && BlobErrorCode.CONTAINER_NOT_FOUND.equals(e.getErrorCode())) {
+                Shard shard = shard(id);
+                log.warn("Blob container {} does not exist anymore", shard.name);
+                shard.initialized = false;
+                return;
+            }
+        }
+    }
+
+    private Shard shard(UUID id) {
+        List<Shard> shards = shards();
+        return shards.get(Math.floorMod(id.hashCode(), shards.size()));
+    }
+
+    private List<Shard> shards() {
+        List<Shard> shards = this.shards;
+        if (shards == null) {
+            initLock.lock();
+            try {
+                shards = this.shards;
+                if (shards == null) {
+                    shards = createShards(properties);
+                    this.shards = shards;
+                }
+            } finally {
+                initLock.unlock();
+            }
+        }
+        return shards;
+    }
+
+    private static List<Shard> createShards(BlobStorageProperties properties) {
+        List<Shard> shards = new ArrayList<>();
+        HttpClient httpClient = createHttpClient(properties.getHttp());
+        RequestRetryOptions retryOptions = new RequestRetryOptions(
+                RetryPolicyType.EXPONENTIAL, properties.getHttp().getMaxTries(), (Integer) null, null, null, null);
+        for (Map.Entry<String, BlobStorageProperties.Account> entry : properties.getAccounts().entrySet()) {
+            BlobStorageProperties.Account account = entry.getValue();
+            // One service client per account, its containers share the connection pool
+            BlobServiceClient serviceClient = new BlobServiceClientBuilder()
+                    .endpoint(account.getEndpoint())
+                    .credential(new StorageSharedKeyCredential(account.getAccountName(), account.getAccountKey()))
+                    .httpClient(httpClient)
+                    .retryOptions(retryOptions)
+                    .buildClient();
+            for (String container : account.getContainers()) {
+                shards.add(new Shard(entry.getKey() + "/" + container, serviceClient.getBlobContainerClient(container)));
+            }
+        }
+        log.info("Using blob containers {}", shards.stream().map(Shard::name).toList());
+        return List.copyOf(shards);
+    }
+
+    private static HttpClient createHttpClient(BlobStorageProperties.Http http) {
+        HttpClientOptions options = new HttpClientOptions()
+                .setMaximumConnectionPoolSize(http.getMaxConnections())
+                .setConnectTimeout(http.getConnectTimeout())
+                .setReadTimeout(http.getReadTimeout())
+                .setWriteTimeout(http.getWriteTimeout())
+                .setResponseTimeout(http.getResponseTimeout())
+                .setConnectionIdleTimeout(http.getIdleTimeout());
+        return HttpClient.createDefault(options);
+    }
+
+    private static final class Shard {
+        private final String name;
+        private final BlobContainerClient client;
+        private volatile boolean initialized;
+
+        Shard(String name, BlobContainerClient client) {
+            this.name = name;
+            this.client = client;
+        }
+
+        String name() {
+            return name;
+        }
+    }
+}
@@ -2,66 +2,257 @@ package de.qaware.multipart;
 
 import com.azure.core.util.Context;
 import com.azure.storage.blob.BlobClient;
-import com.azure.storage.blob.BlobContainerClient;
-import com.azure.storage.blob.BlobServiceClient;
-import com.azure.storage.blob.BlobServiceClientBuilder;
-import com.azure.storage.blob.models.ParallelTransferOptions;
-import com.azure.storage.blob.options.BlobParallelUploadOptions;
-import com.azure.storage.common.StorageSharedKeyCredential;
-import lombok.RequiredArgsConstructor;
+import com.azure.storage.blob.models.BlobProperties;
+import com.azure.storage.blob.models.BlobRange;
+import com.azure.storage.blob.options.BlockBlobCommitBlockListOptions;
+import de.qaware.multipart.common.BufferPool;
+import de.qaware.multipart.common.ByteBuffers;
+import de.qaware.multipart.common.ContentDefinedChunker;
+import de.qaware.multipart.common.PooledBuffer;
+import jakarta.annotation.PreDestroy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.thread.Threading;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
-import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor(onConstructor_ = @Autowired)
 public class BlobStorageAzure {
 
-    private final BlobContainerClient blobContainerClient = createContainerClient();
+    private final BlobContainers blobContainers;
+    private final BlobStorageProperties properties;
+    private final BufferPool bufferPool;
+    private final DedupProperties dedupProperties;
+    private final ChunkIndex chunkIndex;
+    private final ContentDefinedChunker chunker;
+    private final Timer stageBlockTimer;
+    private final Timer commitTimer;
+    private final Timer downloadRangeTimer;
+    private final Timer uploadChunkTimer;
+    private final Counter storedChunkBytes;
+    private final Counter duplicateChunkBytes;
+    private final ExecutorService transferExecutor;
 
-    private BlobContainerClient createContainerClient() {
-        StorageSharedKeyCredential credential = new StorageSharedKeyCredential(
-                "devstoreaccount1",
-                "Eby8vdM02xNOcqFlqUwJPLlmEtlCDXJ1OUzFT50uSRZ6IFsuFq2UVErCz4I6tq/K1SZFPTOtr/KBHBeksoGMGw=="
+    public BlobStorageAzure(BlobContainers blobContainers, BlobStorageProperties properties, BufferPool bufferPool,
+                            DedupProperties dedupProperties, ChunkIndex chunkIndex,
+                            MeterRegistry meterRegistry, Environment environment) {
+        this.blobContainers = blobContainers;
+        this.properties = properties;
+        this.bufferPool = bufferPool;
+        this.dedupProperties = dedupProperties;
+        this.chunkIndex = chunkIndex;
+        this.chunker = new ContentDefinedChunker(
+                Math.toIntExact(dedupProperties.getMinChunkSize().toBytes()),
+                Math.toIntExact(dedupProperties.getAvgChunkSize().toBytes()),
+                Math.toIntExact(dedupProperties.getMaxChunkSize().toBytes())
         );
-        BlobServiceClient blobServiceClient = new BlobServiceClientBuilder()
-                .endpoint("http://localhost:10000/devstoreaccount1")
-                .credential(credential)
-                .buildClient();
-        return blobServiceClient.getBlobContainerClient("container1");
-    }
-
-    public void storeDocument(UUID id, InputStream inputStream) {
-        var parallelTransferOptions = new ParallelTransferOptions()
-                .setBlockSizeLong(100 * 1024 * 1024L)
-                .setMaxConcurrency(1)
-                .setMaxSingleUploadSizeLong(2 * 1024 * 1024L);
-        var blobClient = getContainerClient().getBlobClient(id.toString());
-        var blobParallelUploadOptions = new BlobParallelUploadOptions(inputStream)
-                .setParallelTransferOptions(parallelTransferOptions);
-        var blockBlobItemResponse = blobClient.uploadWithResponse(
-                blobParallelUploadOptions,
-                Duration.ofSeconds(60),
-                Context.NONE
-        );
-        log.info("Upload response: {}", blockBlobItemResponse);
+        this.stageBlockTimer = Timer.builder("blob.stage.block")
+                .description("Time to stage a single block")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.commitTimer = Timer.builder("blob.commit")
+                .description("Time to commit the block list of a blob")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.downloadRangeTimer = Timer.builder("blob.download.range")
+                .description("Time to download a single range of a blob")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.uploadChunkTimer = Timer.builder("blob.upload.chunk")
+                .description("Time to upload a single deduplicated chunk")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.storedChunkBytes = Counter.builder("blob.dedup.bytes")
+                .description("Bytes of deduplicated documents by whether their chunk had to be uploaded")
+                .baseUnit("bytes")
+                .tag("chunk", "new")
+                .register(meterRegistry);
+        this.duplicateChunkBytes = Counter.builder("blob.dedup.bytes")
+                .description("Bytes of deduplicated documents by whether their chunk had to be uploaded")
+                .baseUnit("bytes")
+                .tag("chunk", "duplicate")
+                .register(meterRegistry);
+        // Transfers only wait on the network, so they follow the request threads onto virtual threads
+        this.transferExecutor = Threading.VIRTUAL.isActive(environment)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newCachedThreadPool();
+    }
+
+    public long storeDocument(UUID id, InputStream inputStream) throws IOException {
+        return storeDocument(id, inputStream, Map::of);
+    }
+
+    /**
+     * Stores the document as a manifest of deduplicated chunks if {@code dedup.enabled} is set.
+     *
+     * @param metadata blob metadata, requested after the stream has been read completely
+     */
+    public long storeDocument(UUID id, InputStream inputStream, Callable<Map<String, String>> metadata) throws IOException {
+        if (dedupProperties.isEnabled()) {
+            return withBlob(id, blobClient -> new DedupStager(
+                    blobClient,
+                    this::chunkBlob,
+                    this::chunkFailed,
+                    chunkIndex,
+                    chunker,
+                    bufferPool,
+                    properties.getMaxInFlightBlocks(),
+                    transferExecutor,
+                    uploadChunkTimer,
+                    storedChunkBytes,
+                    duplicateChunkBytes
+            ).stage(inputStream, metadata));
+        }
+        long numBytes = withBlob(id, blobClient -> new BlockStager(
+                blobClient.getBlockBlobClient(),
+                bufferPool,
+                Math.toIntExact(properties.getBlockSize().toBytes()),
+                properties.getMaxInFlightBlocks(),
+                transferExecutor,
+                stageBlockTimer,
+                commitTimer
+        ).stage(inputStream, metadata));
+        log.info("Stored document {} with {} bytes", id, numBytes);
+        return numBytes;
+    }
+
+    /**
+     * Stages a single block of a blob, which becomes visible once {@link #commitBlocks} includes it.
+     */
+    public void stageBlock(UUID id, int index, InputStream inputStream, int length) throws IOException {
+        try (PooledBuffer block = acquireBlock(length)) {
+            int read = ByteBuffers.readFully(inputStream, block.buffer());
+            if (read != length || inputStream.read() >= 0) {
+                throw new IOException("Block " + index + " must have " + length + " bytes");
+            }
+            withBlob(id, blobClient -> stageBlockTimer.record(() -> blobClient.getBlockBlobClient()
+                    .stageBlockWithResponse(BlockStager.blockId(index), ByteBuffers.asInputStream(block.buffer()), length,
+                            null, null, null, Context.NONE)));
+        }
     }
 
-    public void readDocument(UUID id, OutputStream outputStream) {
-        BlobClient blobClient = getContainerClient().getBlobClient(id.toString());
-        blobClient.downloadStream(outputStream);
+    /**
+     * Commits the blocks {@code 0} to {@code numBlocks - 1} staged with {@link #stageBlock}.
+     */
+    public void commitBlocks(UUID id, int numBlocks, Map<String, String> metadata) throws IOException {
+        List<String> blockIds = IntStream.range(0, numBlocks).mapToObj(BlockStager::blockId).toList();
+        var commitOptions = new BlockBlobCommitBlockListOptions(blockIds).setMetadata(metadata);
+        withBlob(id, blobClient -> commitTimer.record(() -> blobClient.getBlockBlobClient()
+                .commitBlockListWithResponse(commitOptions, null, Context.NONE)));
+        log.info("Stored document {} from {} staged blocks", id, numBlocks);
     }
 
-    private BlobContainerClient getContainerClient() {
-        if (!blobContainerClient.exists()) {
-            blobContainerClient.create();
+    public void readDocument(UUID id, OutputStream outputStream) throws IOException {
+        withBlob(id, blobClient -> blobClient.downloadStreamWithResponse(outputStream, null, null, null, false, null, Context.NONE));
+    }
+
+    /**
+     * @throws com.azure.storage.blob.models.BlobStorageException with status 404 if the document does not exist
+     */
+    public BlobProperties getDocumentProperties(UUID id) throws IOException {
+        return withBlob(id, BlobClient::getProperties);
+    }
+
+    /**
+     * Writes {@code count} bytes of the document starting at {@code offset}. Downloads larger than one range are
+     * fetched as several ranges concurrently.
+     */
+    public void readDocument(UUID id, long offset, long count, OutputStream outputStream) throws IOException {
+        int rangeSize = Math.toIntExact(properties.getDownloadRangeSize().toBytes());
+        if (count == 0) {
+            return;
+        }
+        if (count <= rangeSize) {
+            withBlob(id, blobClient -> downloadRangeTimer.record(() -> blobClient.downloadStreamWithResponse(
+                    outputStream, new BlobRange(offset, count), null, null, false, null, Context.NONE)));
+            return;
         }
-        return blobContainerClient;
+        withBlob(id, blobClient -> {
+            rangeDownloader().download(RangeDownloader.split(blobClient, offset, count, rangeSize), outputStream);
+            return null;
+        });
+    }
+
+    /**
+     * Same as {@link #readDocument(UUID, long, long, OutputStream)} for documents stored as a manifest of chunks,
+     * the chunks are fetched concurrently.
+     */
+    public void readManifestDocument(UUID id, long offset, long count, OutputStream outputStream) throws IOException {
+        if (count == 0) {
+            return;
+        }
+        ChunkManifest manifest = withBlob(id, blobClient -> ChunkManifest.parse(blobClient.downloadContent().toString()));
+        // Outside of withBlob, a failed chunk is reported for its own container instead of the one of the manifest
+        List<RangeDownloader.Range> ranges = manifest.slice(offset, count).stream()
+                .map(slice -> new RangeDownloader.Range(chunkBlob(slice.digest()), slice.position(), slice.length(),
+                        failure -> chunkFailed(slice.digest(), failure)))
+                .toList();
+        rangeDownloader().download(ranges, outputStream);
+    }
+
+    /**
+     * Chunks are spread over the containers by their digest like documents by their id.
+     */
+    private BlobClient chunkBlob(String digest) {
+        return blobContainers.get(chunkKey(digest)).getBlobClient("chunks/" + digest);
+    }
+
+    private void chunkFailed(String digest, Throwable failure) {
+        blobContainers.failed(chunkKey(digest), failure);
+    }
+
+    private static UUID chunkKey(String digest) {
+        return new UUID(Long.parseUnsignedLong(digest, 0, 16, 16), Long.parseUnsignedLong(digest, 16, 32, 16));
+    }
+
+    private RangeDownloader rangeDownloader() {
+        return new RangeDownloader(bufferPool, properties.getMaxInFlightRanges(), transferExecutor, downloadRangeTimer);
+    }
+
+    /**
+     * Runs the operation on the blob of the document. Failures caused by a missing container make the next
+     * request create it again.
+     */
+    private <T> T withBlob(UUID id, BlobOperation<T> operation) throws IOException {
+        try {
+            return operation.apply(blobContainers.get(id).getBlobClient(id.toString()));
+        } catch (IOException | RuntimeException e) {
+            blobContainers.failed(id, e);
+            throw e;
+        }
+    }
+
+    private PooledBuffer acquireBlock(int length) throws IOException {
+        try {
+            return bufferPool.acquire(length);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a free block");
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        transferExecutor.shutdown();
+    }
+
+    @FunctionalInterface
+    private interface BlobOperation<T> {
+        T apply(BlobClient blobClient) throws IOException;
     }
 }
@@ -0,0 +1,69 @@
+package de.qaware.multipart;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "blob-storage")
+public class BlobStorageProperties {
+    /**
+     * Size of a single staged block.
+     */
+    private DataSize blockSize = DataSize.ofMegabytes(8);
+    /**
+     * Number of blocks of one upload that may be staged concurrently.
+     */
+    private int maxInFlightBlocks = 4;
+    /**
+     * Size of the ranges fetched concurrently when a document is downloaded.
+     * Smaller downloads are streamed with a single request.
+     */
+    private DataSize downloadRangeSize = DataSize.ofMegabytes(8);
+    /**
+     * Number of ranges of one download that may be fetched or buffered at once.
+     */
+    private int maxInFlightRanges = 4;
+    /**
+     * Storage accounts by name. Documents are spread over all containers of all accounts.
+     */
+    private Map<String, Account> accounts = new LinkedHashMap<>();
+    private Http http = new Http();
+
+    @Getter
+    @Setter
+    public static class Account {
+        private String endpoint;
+        private String accountName;
+        private String accountKey;
+        private List<String> containers = List.of();
+    }
+
+    /**
+     * Settings of the HTTP client shared by all accounts.
+     */
+    @Getter
+    @Setter
+    public static class Http {
+        /**
+         * Maximum number of connections per storage host.
+         */
+        private int maxConnections = 500;
+        private Duration connectTimeout = Duration.ofSeconds(10);
+        private Duration readTimeout = Duration.ofSeconds(60);
+        private Duration writeTimeout = Duration.ofSeconds(60);
+        private Duration responseTimeout = Duration.ofSeconds(60);
+        private Duration idleTimeout = Duration.ofSeconds(60);
+        /**
+         * Attempts of a failed storage request including the first one.
+         */
+        private int maxTries = 4;
+    }
+}
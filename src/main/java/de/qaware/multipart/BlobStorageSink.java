@@ -0,0 +1,54 @@
+package de.qaware.multipart;
+
+import com.azure.storage.blob.models.BlobProperties;
+import de.qaware.multipart.common.ConsumeType;
+import de.qaware.multipart.common.checksum.DigestingInputStream;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+/**
+ * Stores documents as Azure block blobs, see {@link BlobStorageAzure}.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class BlobStorageSink implements StorageSink {
+    private final BlobStorageAzure blobStorageAzure;
+
+    @Override
+    public ConsumeType getType() {
+        return ConsumeType.BLOB;
+    }
+
+    @Override
+    public long store(UUID id, InputStream inputStream, PartDigest digest, Callable<Map<String, String>> metadata) throws IOException {
+        return blobStorageAzure.storeDocument(id, new DigestingInputStream(inputStream, digest), metadata);
+    }
+
+    @Override
+    public StoredDocument getDocument(UUID id) throws IOException {
+        BlobProperties properties = blobStorageAzure.getDocumentProperties(id);
+        String length = properties.getMetadata().get(ChunkManifest.LENGTH_KEY);
+        if (length != null) {
+            // The blob only holds the manifest, reads are served from the chunks
+            return new StoredDocument(id, Long.parseLong(length), properties.getMetadata());
+        }
+        return new StoredDocument(id, properties.getBlobSize(), properties.getMetadata());
+    }
+
+    @Override
+    public void readDocument(StoredDocument document, long offset, long count, OutputStream outputStream) throws IOException {
+        if (document.metadata().containsKey(ChunkManifest.LENGTH_KEY)) {
+            blobStorageAzure.readManifestDocument(document.id(), offset, count, outputStream);
+        } else {
+            blobStorageAzure.readDocument(document.id(), offset, count, outputStream);
+        }
+    }
+}
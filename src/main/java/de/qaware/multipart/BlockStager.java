@@ -0,0 +1,134 @@
+package de.qaware.multipart;
+
+import com.azure.core.util.Context;
+import com.azure.storage.blob.options.BlockBlobCommitBlockListOptions;
+import com.azure.storage.blob.specialized.BlockBlobClient;
+import de.qaware.multipart.common.BufferPool;
+import de.qaware.multipart.common.ByteBuffers;
+import de.qaware.multipart.common.PooledBuffer;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Reads a stream into fixed-size blocks and stages up to {@code maxInFlightBlocks} of them concurrently.
+ * The block list is committed once the stream is exhausted and all blocks have been staged.
+ * The metadata is requested right before the commit, so it may depend on the complete stream.
+ */
+@Slf4j
+@RequiredArgsConstructor
+class BlockStager {
+    private final BlockBlobClient blockBlobClient;
+    private final BufferPool bufferPool;
+    private final int blockSize;
+    private final int maxInFlightBlocks;
+    private final Executor executor;
+    private final Timer stageBlockTimer;
+    private final Timer commitTimer;
+
+    long stage(InputStream inputStream, Callable<Map<String, String>> metadata) throws IOException {
+        Semaphore inFlight = new Semaphore(maxInFlightBlocks);
+        List<String> blockIds = new ArrayList<>();
+        List<CompletableFuture<Void>> stagings = new ArrayList<>();
+        long numBytes = 0;
+        try {
+            while (true) {
+                inFlight.acquire();
+                PooledBuffer block;
+                try {
+                    block = bufferPool.acquire(blockSize);
+                } catch (IOException | RuntimeException e) {
+                    inFlight.release();
+                    throw e;
+                }
+                int length;
+                try {
+                    failFast(stagings);
+                    length = ByteBuffers.readFully(inputStream, block.buffer());
+                } catch (IOException | RuntimeException e) {
+                    release(block, inFlight);
+                    throw e;
+                }
+                if (length == 0) {
+                    release(block, inFlight);
+                    break;
+                }
+
+                String blockId = blockId(blockIds.size());
+                blockIds.add(blockId);
+                numBytes += length;
+                stagings.add(CompletableFuture.runAsync(() -> stageBlock(blockId, block, length, inFlight), executor));
+                if (length < blockSize) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a free block");
+        }
+
+        awaitAll(stagings);
+        var commitOptions = new BlockBlobCommitBlockListOptions(blockIds)
+                .setMetadata(call(metadata));
+        commitTimer.record(() -> blockBlobClient.commitBlockListWithResponse(commitOptions, null, Context.NONE));
+        log.info("Committed {} blocks with {} bytes", blockIds.size(), numBytes);
+        return numBytes;
+    }
+
+    private void stageBlock(String blockId, PooledBuffer block, int length, Semaphore inFlight) {
+        try {
+            stageBlockTimer.record(() -> blockBlobClient.stageBlock(blockId, ByteBuffers.asInputStream(block.buffer()), length));
+        } finally {
+            release(block, inFlight);
+        }
+    }
+
+    private static void release(PooledBuffer block, Semaphore inFlight) {
+        block.close();
+        inFlight.release();
+    }
+
+    private static void failFast(List<CompletableFuture<Void>> stagings) throws IOException {
+        if (stagings.stream().anyMatch(CompletableFuture::isCompletedExceptionally)) {
+            awaitAll(stagings);
+        }
+    }
+
+    private static void awaitAll(List<CompletableFuture<Void>> stagings) throws IOException {
+        try {
+            CompletableFuture.allOf(stagings.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            throw new IOException("Staging of block failed", e.getCause());
+        }
+    }
+
+    static Map<String, String> call(Callable<Map<String, String>> metadata) throws IOException {
+        try {
+            return metadata.call();
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Collecting blob metadata failed", e);
+        }
+    }
+
+    static String blockId(int index) {
+        // All block ids of a blob must have the same length
+        byte[] id = String.format("%010d", index).getBytes(StandardCharsets.US_ASCII);
+        return Base64.getEncoder().encodeToString(id);
+    }
+}
@@ -0,0 +1,36 @@
+package de.qaware.multipart;
+
+import de.qaware.multipart.common.BufferPool;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class BufferPoolMetrics implements MeterBinder {
+    private final BufferPool bufferPool;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("buffer.pool.capacity", bufferPool, BufferPool::getCapacity)
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("buffer.pool.allocated", bufferPool, BufferPool::getAllocatedBytes)
+                .baseUnit("bytes")
+                .description("Bytes held by the pool, whether leased or idle")
+                .register(registry);
+        Gauge.builder("buffer.pool.leased", bufferPool, BufferPool::getLeasedBytes)
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("buffer.pool.waiting", bufferPool, BufferPool::getWaiting)
+                .description("Requests waiting for a free buffer")
+                .register(registry);
+        FunctionCounter.builder("buffer.pool.rejected", bufferPool, BufferPool::getRejected)
+                .description("Requests rejected because no buffer became available in time")
+                .register(registry);
+    }
+}
@@ -0,0 +1,28 @@
+package de.qaware.multipart;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "buffer-pool")
+public class BufferPoolProperties {
+    /**
+     * Upper bound for the bytes held by all pooled buffers together.
+     */
+    private DataSize capacity = DataSize.ofMegabytes(512);
+    private DataSize minBufferSize = DataSize.ofKilobytes(4);
+    private DataSize maxBufferSize = DataSize.ofMegabytes(16);
+    /**
+     * Allocate direct instead of heap buffers.
+     */
+    private boolean direct = false;
+    /**
+     * How long a request waits for a free buffer before it is rejected.
+     */
+    private Duration acquireTimeout = Duration.ofSeconds(30);
+}
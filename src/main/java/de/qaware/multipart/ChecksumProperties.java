@@ -0,0 +1,36 @@
+package de.qaware.multipart;
+
+import de.qaware.multipart.common.checksum.ChecksumAlgorithm;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "checksum")
+public class ChecksumProperties {
+    /**
+     * Algorithms used if the request does not select any.
+     */
+    private Set<ChecksumAlgorithm> defaultAlgorithms = EnumSet.of(ChecksumAlgorithm.CRC32);
+    /**
+     * Parts larger than this are hashed on a separate thread.
+     */
+    private DataSize offloadThreshold = DataSize.ofMegabytes(64);
+    /**
+     * Size of the chunks handed to the hashing thread.
+     */
+    private DataSize chunkSize = DataSize.ofMegabytes(1);
+    /**
+     * Number of chunks that may wait for the hashing thread before the upload blocks.
+     */
+    private int queueDepth = 4;
+    /**
+     * Threads hashing offloaded parts. Further large parts are hashed on their request thread while all are busy.
+     */
+    private int hashingThreads = Runtime.getRuntime().availableProcessors();
+}
@@ -0,0 +1,131 @@
+package de.qaware.multipart;
+
+import de.qaware.multipart.common.BufferPool;
+import de.qaware.multipart.common.PartTimings;
+import de.qaware.multipart.common.UploadResult;
+import de.qaware.multipart.common.checksum.ChecksumAlgorithm;
+import de.qaware.multipart.common.checksum.ExpectedDigests;
+import de.qaware.multipart.common.checksum.MultiDigest;
+import de.qaware.multipart.common.checksum.OffloadingDigest;
+import jakarta.annotation.PreDestroy;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Creates the digests for uploaded parts. Requests select the algorithms with the {@value #ALGORITHMS_HEADER}
+ * header, e.g. {@code X-Checksum-Algorithms: CRC32C, SHA256}.
+ */
+@Service
+public class ChecksumService {
+    public static final String ALGORITHMS_HEADER = "X-Checksum-Algorithms";
+
+    private final ChecksumProperties properties;
+    private final BufferPool bufferPool;
+    private final ExecutorService hashingExecutor;
+
+    public ChecksumService(ChecksumProperties properties, BufferPool bufferPool) {
+        this.properties = properties;
+        this.bufferPool = bufferPool;
+        // Hashing is bound by the cores, no queue: a rejected part is hashed inline by OffloadingDigest
+        this.hashingExecutor = new ThreadPoolExecutor(0, properties.getHashingThreads(), 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public Set<ChecksumAlgorithm> algorithms(String header) {
+        if (header == null || header.isBlank()) {
+            return properties.getDefaultAlgorithms();
+        }
+        try {
+            return ChecksumAlgorithm.parse(header);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown checksum algorithm in " + ALGORITHMS_HEADER + ": " + header);
+        }
+    }
+
+    /**
+     * Digests announced by the client with {@code Content-MD5}, {@code Digest} or {@code Content-Digest}.
+     *
+     * @param headers looks up a header of the request or part by name
+     */
+    public ExpectedDigests expected(UnaryOperator<String> headers) {
+        try {
+            return ExpectedDigests.parse(
+                    headers.apply(ExpectedDigests.CONTENT_MD5_HEADER),
+                    headers.apply(ExpectedDigests.DIGEST_HEADER),
+                    headers.apply(ExpectedDigests.CONTENT_DIGEST_HEADER)
+            );
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed digest header: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param algorithms selected by the client, the algorithms of {@code expected} are computed as well
+     */
+    public PartDigest start(Set<ChecksumAlgorithm> algorithms, ExpectedDigests expected) {
+        if (expected.algorithms().isEmpty() || algorithms.containsAll(expected.algorithms())) {
+            return start(algorithms);
+        }
+        Set<ChecksumAlgorithm> all = EnumSet.noneOf(ChecksumAlgorithm.class);
+        all.addAll(algorithms);
+        all.addAll(expected.algorithms());
+        return start(all);
+    }
+
+    public PartDigest start(Set<ChecksumAlgorithm> algorithms) {
+        MultiDigest multiDigest = new MultiDigest(algorithms);
+        PartDigest.TimedDigest timedDigest = new PartDigest.TimedDigest(multiDigest);
+        // Without algorithms there is nothing worth copying to another thread
+        long offloadThreshold = algorithms.isEmpty() ? Long.MAX_VALUE : properties.getOffloadThreshold().toBytes();
+        OffloadingDigest offloadingDigest = new OffloadingDigest(
+                timedDigest,
+                bufferPool,
+                hashingExecutor,
+                offloadThreshold,
+                Math.toIntExact(properties.getChunkSize().toBytes()),
+                properties.getQueueDepth()
+        );
+        return new PartDigest(multiDigest, timedDigest, offloadingDigest);
+    }
+
+    /**
+     * Checksums as blob metadata, the keys have to be valid C# identifiers.
+     */
+    public static Map<String, String> toMetadata(Map<ChecksumAlgorithm, String> checksums) {
+        return checksums.entrySet().stream().collect(Collectors.toMap(
+                entry -> "checksum_" + entry.getKey().name().toLowerCase(Locale.ROOT),
+                Map.Entry::getValue
+        ));
+    }
+
+    /**
+     * @param documentId id of the stored document, {@code null} if the data was not stored
+     * @param timings    {@code null} if not measured
+     */
+    public static UploadResult toUploadResult(long numBytes, Map<ChecksumAlgorithm, String> checksums, UUID documentId,
+                                              PartTimings timings) {
+        String crc32 = checksums.get(ChecksumAlgorithm.CRC32);
+        Map<String, String> checksumsByName = new LinkedHashMap<>();
+        checksums.forEach((algorithm, value) -> checksumsByName.put(algorithm.name(), value));
+        return new UploadResult(numBytes, crc32 == null ? 0 : Long.parseLong(crc32, 16), checksumsByName, documentId, timings);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        hashingExecutor.shutdown();
+    }
+}
@@ -0,0 +1,78 @@
+package de.qaware.multipart;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Digests of the chunks which are stored already. The set is held in memory and every new digest is appended to
+ * the index file, which is read again on startup. The index trusts the storage, chunks deleted behind its back have
+ * to be removed from the file as well.
+ */
+@Slf4j
+@Component
+public class ChunkIndex {
+    private final Set<String> digests = ConcurrentHashMap.newKeySet();
+    /**
+     * Guards the writer, a lock instead of a monitor so virtual threads are not pinned while the file is written.
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final BufferedWriter writer;
+
+    public ChunkIndex(DedupProperties properties) throws IOException {
+        if (!properties.isEnabled()) {
+            writer = null;
+            return;
+        }
+        Path indexFile = properties.getIndexFile();
+        if (Files.exists(indexFile)) {
+            try (var lines = Files.lines(indexFile, StandardCharsets.US_ASCII)) {
+                lines.filter(line -> !line.isBlank()).forEach(digests::add);
+            }
+            log.info("Loaded {} chunk digests from {}", digests.size(), indexFile);
+        }
+        writer = Files.newBufferedWriter(indexFile, StandardCharsets.US_ASCII,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    public boolean contains(String digest) {
+        return digests.contains(digest);
+    }
+
+    /**
+     * Records a chunk once it has been stored.
+     */
+    public void add(String digest) throws IOException {
+        if (digests.add(digest)) {
+            writeLock.lock();
+            try {
+                writer.write(digest);
+                writer.newLine();
+                writer.flush();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    public int size() {
+        return digests.size();
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+}
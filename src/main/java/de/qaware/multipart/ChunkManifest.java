@@ -0,0 +1,72 @@
+package de.qaware.multipart;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Chunks of a deduplicated document in order, stored as one line {@code <sha256> <length>} per chunk.
+ */
+class ChunkManifest {
+    static final String LENGTH_KEY = "dedup_length";
+    static final String CHUNKS_KEY = "dedup_chunks";
+
+    private final List<Chunk> chunks = new ArrayList<>();
+    private long length;
+
+    static ChunkManifest parse(String content) {
+        ChunkManifest manifest = new ChunkManifest();
+        content.lines().filter(line -> !line.isBlank()).forEach(line -> {
+            int separator = line.indexOf(' ');
+            manifest.add(line.substring(0, separator), Integer.parseInt(line.substring(separator + 1)));
+        });
+        return manifest;
+    }
+
+    void add(String digest, int chunkLength) {
+        chunks.add(new Chunk(digest, chunkLength));
+        length += chunkLength;
+    }
+
+    long getLength() {
+        return length;
+    }
+
+    int size() {
+        return chunks.size();
+    }
+
+    /**
+     * The parts of the chunks covering {@code count} bytes of the document starting at {@code offset}.
+     */
+    List<Slice> slice(long offset, long count) {
+        List<Slice> slices = new ArrayList<>();
+        long end = offset + count;
+        long chunkStart = 0;
+        for (Chunk chunk : chunks) {
+            long chunkEnd = chunkStart + chunk.length();
+            if (chunkEnd > offset && chunkStart < end) {
+                long from = Math.max(offset, chunkStart);
+                long to = Math.min(end, chunkEnd);
+                slices.add(new Slice(chunk.digest(), from - chunkStart, (int) (to - from)));
+            }
+            if (chunkEnd >= end) {
+                break;
+            }
+            chunkStart = chunkEnd;
+        }
+        return slices;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(chunks.size() * 76);
+        chunks.forEach(chunk -> builder.append(chunk.digest()).append(' ').append(chunk.length()).append('\n'));
+        return builder.toString();
+    }
+
+    record Chunk(String digest, int length) {
+    }
+
+    record Slice(String digest, long position, int length) {
+    }
+}
@@ -0,0 +1,92 @@
+package de.qaware.multipart;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Compresses a stream while it is read. Each read pulls the next chunk of the source through the compressor,
+ * so no further thread is needed between the parser and the sink.
+ */
+class CompressingInputStream extends InputStream {
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final InputStream source;
+    private final CompressedBytes compressed = new CompressedBytes();
+    private final OutputStream compressor;
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private int readPosition;
+    private long sourceBytes;
+    private boolean ended;
+
+    CompressingInputStream(InputStream source, CompressionCodec codec) throws IOException {
+        this.source = source;
+        this.compressor = codec.compress(compressed);
+    }
+
+    /**
+     * Uncompressed bytes read from the source so far.
+     */
+    long getSourceBytes() {
+        return sourceBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int n = read(b, 0, 1);
+        return n < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (readPosition == compressed.size()) {
+            if (ended) {
+                return -1;
+            }
+            compressed.reset();
+            readPosition = 0;
+            int n = source.read(chunk, 0, CHUNK_SIZE);
+            if (n < 0) {
+                // Writes the last block and the end mark of the codec
+                compressor.close();
+                ended = true;
+            } else {
+                sourceBytes += n;
+                compressor.write(chunk, 0, n);
+            }
+        }
+        int n = Math.min(len, compressed.size() - readPosition);
+        System.arraycopy(compressed.bytes(), readPosition, b, off, n);
+        readPosition += n;
+        return n;
+    }
+
+    /**
+     * Releases the compressor, the source stays open like any other part stream handed to a sink.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!ended) {
+            ended = true;
+            compressor.close();
+        }
+    }
+
+    /**
+     * Output of the compressor, read directly from its internal array.
+     */
+    private static class CompressedBytes extends ByteArrayOutputStream {
+        CompressedBytes() {
+            super(CHUNK_SIZE);
+        }
+
+        byte[] bytes() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package de.qaware.multipart;
+
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Streaming codecs of the compression stage, see {@link CompressionStage}.
+ */
+public enum CompressionCodec {
+    /**
+     * LZ4 frames with 64 KB blocks, cheap enough to keep up with the network.
+     */
+    LZ4 {
+        @Override
+        OutputStream compress(OutputStream outputStream) throws IOException {
+            return new LZ4FrameOutputStream(outputStream, LZ4FrameOutputStream.BLOCKSIZE.SIZE_64KB);
+        }
+
+        @Override
+        InputStream decompress(InputStream inputStream) throws IOException {
+            return new LZ4FrameInputStream(inputStream);
+        }
+    },
+    /**
+     * Deflate at its fastest level, needs no native code.
+     */
+    DEFLATE {
+        @Override
+        OutputStream compress(OutputStream outputStream) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            return new DeflaterOutputStream(outputStream, deflater, BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    // A deflater passed to the stream is not released by it
+                    try {
+                        super.close();
+                    } finally {
+                        deflater.end();
+                    }
+                }
+            };
+        }
+
+        @Override
+        InputStream decompress(InputStream inputStream) {
+            return new InflaterInputStream(inputStream, new Inflater(), BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        inf.end();
+                    }
+                }
+            };
+        }
+    };
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Closing the returned stream writes the end of the compressed data and closes the given stream.
+     */
+    abstract OutputStream compress(OutputStream outputStream) throws IOException;
+
+    abstract InputStream decompress(InputStream inputStream) throws IOException;
+}
@@ -0,0 +1,25 @@
+package de.qaware.multipart;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "compression")
+public class CompressionProperties {
+    /**
+     * Compress parts before they reach the storage sink. Compressed documents are decompressed on download either way.
+     */
+    private boolean enabled = false;
+    private CompressionCodec codec = CompressionCodec.LZ4;
+    /**
+     * Bytes at the start of every part compressed on trial to decide whether the part is compressed at all.
+     */
+    private DataSize sampleSize = DataSize.ofKilobytes(64);
+    /**
+     * Fraction of the sample the codec has to save, parts saving less are stored as they are.
+     */
+    private double minSavings = 0.1;
+}
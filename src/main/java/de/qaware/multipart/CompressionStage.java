@@ -0,0 +1,241 @@
+package de.qaware.multipart;
+
+import de.qaware.multipart.common.BufferPool;
+import de.qaware.multipart.common.ByteBuffers;
+import de.qaware.multipart.common.ConsumeType;
+import de.qaware.multipart.common.PooledBuffer;
+import de.qaware.multipart.common.SpoolBuffer;
+import de.qaware.multipart.common.checksum.DigestingInputStream;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Optional compression between the parser and the storage sinks. The start of every part is compressed on trial
+ * and parts which hardly shrink are stored as they are. The checksums are always computed over the uploaded bytes,
+ * the codec and the uploaded length are stored as metadata, so downloads are decompressed transparently.
+ */
+@Slf4j
+@Service
+public class CompressionStage {
+    static final String CODEC_KEY = "compression_codec";
+    static final String ORIGINAL_LENGTH_KEY = "compression_original_length";
+    private static final String CODEC_NONE = "none";
+    private static final int SPOOL_CHUNK_SIZE = 256 * 1024;
+    private static final long SPOOL_MEMORY_LIMIT = 4 * 1024 * 1024;
+    private static final int COPY_BUFFER_SIZE = 32 * 1024;
+
+    private final CompressionProperties properties;
+    private final ChecksumService checksumService;
+    private final BufferPool bufferPool;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService downloadExecutor;
+
+    public CompressionStage(CompressionProperties properties, ChecksumService checksumService, BufferPool bufferPool,
+                            MeterRegistry meterRegistry, Environment environment) {
+        this.properties = properties;
+        this.checksumService = checksumService;
+        this.bufferPool = bufferPool;
+        this.meterRegistry = meterRegistry;
+        this.downloadExecutor = Threading.VIRTUAL.isActive(environment)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newCachedThreadPool();
+    }
+
+    /**
+     * Adds the compression stage in front of the sink.
+     */
+    public StorageSink wrap(StorageSink sink) {
+        return new CompressingSink(sink);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        downloadExecutor.shutdown();
+    }
+
+    private boolean isWorthCompressing(CompressionCodec codec, ByteBuffer sample) throws IOException {
+        if (!sample.hasRemaining()) {
+            return false;
+        }
+        CountingOutputStream counter = new CountingOutputStream();
+        try (OutputStream compressor = codec.compress(counter)) {
+            ByteBuffers.writeFully(sample.duplicate(), compressor);
+        }
+        return counter.count <= sample.remaining() * (1 - properties.getMinSavings());
+    }
+
+    private DistributionSummary ratioSummary(String codec) {
+        return DistributionSummary.builder("compression.ratio")
+                .description("Stored bytes per uploaded byte of a part")
+                .tag("codec", codec)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private PooledBuffer acquireBuffer(int size) throws IOException {
+        try {
+            return bufferPool.acquire(size);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a free buffer");
+        }
+    }
+
+    private class CompressingSink implements StorageSink {
+        private final StorageSink delegate;
+
+        private CompressingSink(StorageSink delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public ConsumeType getType() {
+            return delegate.getType();
+        }
+
+        @Override
+        public boolean isPersistent() {
+            return delegate.isPersistent();
+        }
+
+        @Override
+        public long store(UUID id, InputStream inputStream, PartDigest digest, Callable<Map<String, String>> metadata) throws IOException {
+            if (!properties.isEnabled()) {
+                return delegate.store(id, inputStream, digest, metadata);
+            }
+            CompressionCodec codec = properties.getCodec();
+            try (PooledBuffer pooledSample = acquireBuffer(Math.toIntExact(properties.getSampleSize().toBytes()))) {
+                ByteBuffer sample = pooledSample.buffer();
+                ByteBuffers.readFully(inputStream, sample);
+                boolean compress = isWorthCompressing(codec, sample);
+                InputStream replayed = new SequenceInputStream(ByteBuffers.asInputStream(sample), inputStream);
+                if (!compress) {
+                    ratioSummary(CODEC_NONE).record(1);
+                    return delegate.store(id, replayed, digest, metadata);
+                }
+
+                // The sink only sees compressed bytes, the checksums are computed before compression
+                try (PartDigest storedDigest = checksumService.start(Set.of());
+                     CompressingInputStream compressed = new CompressingInputStream(new DigestingInputStream(replayed, digest), codec)) {
+                    long storedBytes = delegate.store(id, compressed, storedDigest, () -> {
+                        Map<String, String> values = new HashMap<>(metadata.call());
+                        values.put(CODEC_KEY, codec.name());
+                        values.put(ORIGINAL_LENGTH_KEY, Long.toString(compressed.getSourceBytes()));
+                        return values;
+                    });
+                    long numBytes = compressed.getSourceBytes();
+                    ratioSummary(codec.name().toLowerCase(Locale.ROOT)).record((double) storedBytes / numBytes);
+                    log.debug("Compressed part from {} to {} bytes with {}", numBytes, storedBytes, codec);
+                    return numBytes;
+                }
+            }
+        }
+
+        @Override
+        public StoredDocument getDocument(UUID id) throws IOException {
+            StoredDocument document = delegate.getDocument(id);
+            String originalLength = document.metadata().get(ORIGINAL_LENGTH_KEY);
+            if (originalLength == null) {
+                return document;
+            }
+            return new StoredDocument(id, Long.parseLong(originalLength), document.storedSize(), document.metadata());
+        }
+
+        /**
+         * Compressed documents are downloaded completely on another thread and decompressed while they arrive,
+         * the bytes before {@code offset} are skipped.
+         */
+        @Override
+        public void readDocument(StoredDocument document, long offset, long count, OutputStream outputStream) throws IOException {
+            String codecName = document.metadata().get(CODEC_KEY);
+            if (codecName == null) {
+                delegate.readDocument(document, offset, count, outputStream);
+                return;
+            }
+            CompressionCodec codec = CompressionCodec.valueOf(codecName);
+
+            SpoolBuffer spool = new SpoolBuffer(bufferPool, SPOOL_CHUNK_SIZE, SPOOL_MEMORY_LIMIT, null);
+            CompletableFuture<Void> download = CompletableFuture.runAsync(() -> {
+                try {
+                    delegate.readDocument(document, 0, document.storedSize(), new SpoolOutputStream(spool));
+                    spool.finish();
+                } catch (IOException | RuntimeException e) {
+                    spool.fail(e);
+                }
+            }, downloadExecutor);
+
+            try (InputStream decompressed = codec.decompress(spool.newInputStream());
+                 PooledBuffer pooledBuffer = acquireBuffer(COPY_BUFFER_SIZE)) {
+                decompressed.skipNBytes(offset);
+                ByteBuffer buffer = pooledBuffer.buffer();
+                long remaining = count;
+                while (remaining > 0) {
+                    buffer.clear().limit((int) Math.min(COPY_BUFFER_SIZE, remaining));
+                    int n = ByteBuffers.readFully(decompressed, buffer);
+                    if (n == 0) {
+                        throw new IOException("Document " + document.id() + " ended after " + (offset + count - remaining) + " bytes");
+                    }
+                    ByteBuffers.writeFully(buffer, outputStream);
+                    remaining -= n;
+                }
+            } finally {
+                // Closing the spool buffer stops a download which is still running
+                spool.close();
+                download.join();
+            }
+        }
+    }
+
+    private static class SpoolOutputStream extends OutputStream {
+        private final SpoolBuffer spool;
+
+        private SpoolOutputStream(SpoolBuffer spool) {
+            this.spool = spool;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            spool.write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            spool.write(b, off, len);
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package de.qaware.multipart;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "dedup")
+public class DedupProperties {
+    /**
+     * Store blobs as manifests of content-defined chunks, each distinct chunk is uploaded once.
+     */
+    private boolean enabled = false;
+    private DataSize minChunkSize = DataSize.ofKilobytes(256);
+    /**
+     * Has to be a power of two.
+     */
+    private DataSize avgChunkSize = DataSize.ofMegabytes(1);
+    private DataSize maxChunkSize = DataSize.ofMegabytes(4);
+    /**
+     * Digests of the chunks known to be stored, kept across restarts.
+     */
+    private Path indexFile = Path.of(System.getProperty("java.io.tmpdir"), "multipart-chunks.idx");
+}
@@ -0,0 +1,161 @@
+package de.qaware.multipart;
+
+import com.azure.core.util.BinaryData;
+import com.azure.core.util.Context;
+import com.azure.storage.blob.BlobClient;
+import com.azure.storage.blob.options.BlobParallelUploadOptions;
+import de.qaware.multipart.common.BufferPool;
+import de.qaware.multipart.common.ByteBuffers;
+import de.qaware.multipart.common.ContentDefinedChunker;
+import de.qaware.multipart.common.PooledBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Cuts a stream into content-defined chunks and uploads every chunk which is not in the {@link ChunkIndex} yet, up
+ * to {@code maxInFlightChunks} of them concurrently. The document blob is a manifest with one line
+ * {@code <sha256> <length>} per chunk, see {@link ChunkManifest}.
+ */
+@Slf4j
+@RequiredArgsConstructor
+class DedupStager {
+    private final BlobClient manifestBlob;
+    private final Function<String, BlobClient> chunkBlobs;
+    /**
+     * Called with the digest of a chunk whose upload failed, the chunk may be in another container than the manifest.
+     */
+    private final BiConsumer<String, Throwable> chunkFailed;
+    private final ChunkIndex chunkIndex;
+    private final ContentDefinedChunker chunker;
+    private final BufferPool bufferPool;
+    private final int maxInFlightChunks;
+    private final Executor executor;
+    private final Timer uploadChunkTimer;
+    private final Counter storedBytes;
+    private final Counter duplicateBytes;
+
+    long stage(InputStream inputStream, Callable<Map<String, String>> metadata) throws IOException {
+        Semaphore inFlight = new Semaphore(maxInFlightChunks);
+        List<CompletableFuture<Void>> uploads = new ArrayList<>();
+        // Chunks repeated within the document are uploaded once as well
+        Set<String> uploading = new HashSet<>();
+        ChunkManifest manifest = new ChunkManifest();
+        MessageDigest sha256 = sha256();
+
+        try (PooledBuffer pooledWindow = bufferPool.acquire(chunker.getMaxChunkSize())) {
+            ByteBuffer window = pooledWindow.buffer();
+            while (true) {
+                ByteBuffers.readFully(inputStream, window);
+                if (!window.hasRemaining()) {
+                    break;
+                }
+                int length = chunker.cut(window);
+                ByteBuffer chunk = window.slice(window.position(), length);
+                sha256.update(chunk.duplicate());
+                String digest = HexFormat.of().formatHex(sha256.digest());
+                manifest.add(digest, length);
+
+                if (chunkIndex.contains(digest) || !uploading.add(digest)) {
+                    duplicateBytes.increment(length);
+                } else {
+                    failFast(uploads);
+                    uploads.add(upload(digest, chunk, inFlight));
+                    storedBytes.increment(length);
+                }
+                window.position(window.position() + length);
+                window.compact().limit(chunker.getMaxChunkSize());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a free chunk");
+        }
+
+        awaitAll(uploads);
+        Map<String, String> manifestMetadata = new HashMap<>(BlockStager.call(metadata));
+        manifestMetadata.put(ChunkManifest.LENGTH_KEY, Long.toString(manifest.getLength()));
+        manifestMetadata.put(ChunkManifest.CHUNKS_KEY, Integer.toString(manifest.size()));
+        byte[] content = manifest.toString().getBytes(StandardCharsets.US_ASCII);
+        manifestBlob.uploadWithResponse(new BlobParallelUploadOptions(BinaryData.fromBytes(content))
+                .setMetadata(manifestMetadata), null, Context.NONE);
+        log.info("Stored manifest of {} chunks with {} bytes, uploaded {} new chunks",
+                manifest.size(), manifest.getLength(), uploads.size());
+        return manifest.getLength();
+    }
+
+    /**
+     * Copies the chunk, the window is reused for the next one while the upload runs.
+     */
+    private CompletableFuture<Void> upload(String digest, ByteBuffer chunk, Semaphore inFlight) throws IOException, InterruptedException {
+        inFlight.acquire();
+        PooledBuffer copy;
+        try {
+            copy = bufferPool.acquire(chunk.remaining());
+        } catch (IOException | RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+        copy.buffer().put(chunk).flip();
+        return CompletableFuture.runAsync(() -> {
+            try (copy) {
+                ByteBuffer buffer = copy.buffer();
+                uploadChunkTimer.record(() -> chunkBlobs.apply(digest).getBlockBlobClient()
+                        .upload(ByteBuffers.asInputStream(buffer), buffer.remaining(), true));
+                chunkIndex.add(digest);
+            } catch (IOException e) {
+                chunkFailed.accept(digest, e);
+                throw new CompletionException(e);
+            } catch (RuntimeException e) {
+                chunkFailed.accept(digest, e);
+                throw e;
+            } finally {
+                inFlight.release();
+            }
+        }, executor);
+    }
+
+    private static void failFast(List<CompletableFuture<Void>> uploads) throws IOException {
+        if (uploads.stream().anyMatch(CompletableFuture::isCompletedExceptionally)) {
+            awaitAll(uploads);
+        }
+    }
+
+    private static void awaitAll(List<CompletableFuture<Void>> uploads) throws IOException {
+        try {
+            CompletableFuture.allOf(uploads.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            throw new IOException("Upload of chunk failed", e.getCause());
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
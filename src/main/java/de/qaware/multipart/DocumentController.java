@@ -0,0 +1,81 @@
+package de.qaware.multipart;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Downloads stored documents from the sink selected like for uploads, see {@link StorageSinks}.
+ * A single byte range may be requested with the {@code Range} header, requests with several ranges get the
+ * whole document.
+ */
+@RestController
+@RequestMapping("/api/documents")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class DocumentController {
+    private static final String ENDPOINT_DOCUMENTS = "documents";
+
+    private final StorageSinks storageSinks;
+    private final UploadMetrics uploadMetrics;
+
+    @GetMapping(value = "{id}", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> download(
+            @PathVariable UUID id,
+            @RequestHeader(name = HttpHeaders.RANGE, required = false) String rangeHeader,
+            @RequestHeader(name = StorageSinks.SINK_HEADER, required = false) String sinkName
+    ) throws IOException {
+        StorageSink sink = storageSinks.select(sinkName);
+        String sinkTag = sink.getType().name().toLowerCase(Locale.ROOT);
+        StoredDocument document = sink.getDocument(id);
+        long size = document.size();
+        long start = 0;
+        long end = size - 1;
+        HttpStatus status = HttpStatus.OK;
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (rangeHeader != null) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(size);
+                    end = ranges.get(0).getRangeEnd(size);
+                    status = HttpStatus.PARTIAL_CONTENT;
+                    headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+                }
+            } catch (IllegalArgumentException e) {
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).headers(headers).build();
+            }
+        }
+
+        long offset = start;
+        long count = end - start + 1;
+        headers.setContentLength(count);
+        StreamingResponseBody body = outputStream -> {
+            long tStart = System.nanoTime();
+            sink.readDocument(document, offset, count, outputStream);
+            uploadMetrics.timer("download.duration", "Total time of a download request", ENDPOINT_DOCUMENTS, sinkTag)
+                    .record(System.nanoTime() - tStart, TimeUnit.NANOSECONDS);
+            uploadMetrics.summary("download.bytes", "Payload bytes per download", "bytes", ENDPOINT_DOCUMENTS, sinkTag)
+                    .record(count);
+        };
+        return ResponseEntity.status(status).headers(headers).body(body);
+    }
+}
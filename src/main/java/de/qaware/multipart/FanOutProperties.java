@@ -0,0 +1,32 @@
+package de.qaware.multipart;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "fan-out")
+public class FanOutProperties {
+    /**
+     * Hand the parts of a multipart request to the sink concurrently instead of one after the other.
+     */
+    private boolean enabled = false;
+    /**
+     * Number of parts of one request that may be consumed concurrently.
+     */
+    private int maxParallelParts = 4;
+    /**
+     * Bytes of a part buffered in memory until the sink catches up.
+     */
+    private DataSize memoryPerPart = DataSize.ofMegabytes(16);
+    private DataSize chunkSize = DataSize.ofMegabytes(1);
+    /**
+     * Write further bytes of a part to a temporary file instead of waiting for the sink.
+     */
+    private boolean spillToDisk = false;
+    private Path spillDirectory = Path.of(System.getProperty("java.io.tmpdir"));
+}
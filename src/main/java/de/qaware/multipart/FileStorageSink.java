@@ -0,0 +1,157 @@
+package de.qaware.multipart;
+
+import de.qaware.multipart.common.ByteBuffers;
+import de.qaware.multipart.common.ConsumeType;
+import de.qaware.multipart.common.checksum.DigestingInputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+/**
+ * Stores documents as files in a local directory. A document is written to {@code <id>.part} and renamed to
+ * {@code <id>} once complete, its metadata is kept in {@code <id>.properties}.
+ */
+@Slf4j
+@Component
+public class FileStorageSink implements StorageSink {
+    private static final long TRANSFER_SIZE = 1024 * 1024;
+
+    private final StorageProperties.File properties;
+    private final Path directory;
+
+    public FileStorageSink(StorageProperties storageProperties) {
+        this.properties = storageProperties.getFile();
+        this.directory = properties.getDirectory();
+    }
+
+    @Override
+    public ConsumeType getType() {
+        return ConsumeType.FILE;
+    }
+
+    @Override
+    public long store(UUID id, InputStream inputStream, PartDigest digest, Callable<Map<String, String>> metadata) throws IOException {
+        Files.createDirectories(directory);
+        Path partial = directory.resolve(id + ".part");
+        long numBytes;
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            numBytes = switch (properties.getWriteMode()) {
+                case TRANSFER -> transfer(inputStream, digest, channel);
+                case MMAP -> map(inputStream, digest, channel);
+            };
+            if (properties.getSync() != StorageProperties.SyncMode.NONE) {
+                channel.force(properties.getSync() == StorageProperties.SyncMode.ALL);
+            }
+            writeMetadata(id, BlockStager.call(metadata));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+        Files.move(partial, document(id), StandardCopyOption.ATOMIC_MOVE);
+        log.info("Stored document {} with {} bytes in {}", id, numBytes, directory);
+        return numBytes;
+    }
+
+    @Override
+    public StoredDocument getDocument(UUID id) throws IOException {
+        long size;
+        try {
+            size = Files.size(document(id));
+        } catch (NoSuchFileException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Document not found");
+        }
+        return new StoredDocument(id, size, readMetadata(id));
+    }
+
+    @Override
+    public void readDocument(StoredDocument document, long offset, long count, OutputStream outputStream) throws IOException {
+        UUID id = document.id();
+        try (FileChannel channel = FileChannel.open(document(id), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(outputStream);
+            long transferred = 0;
+            while (transferred < count) {
+                long n = channel.transferTo(offset + transferred, count - transferred, target);
+                if (n <= 0) {
+                    throw new IOException("Document " + id + " ended after " + (offset + transferred) + " bytes");
+                }
+                transferred += n;
+            }
+        }
+    }
+
+    private static long transfer(InputStream inputStream, PartDigest digest, FileChannel channel) throws IOException {
+        ReadableByteChannel source = Channels.newChannel(new DigestingInputStream(inputStream, digest));
+        long position = 0;
+        long n;
+        // A blocking source only transfers zero bytes at its end
+        while ((n = channel.transferFrom(source, position, TRANSFER_SIZE)) > 0) {
+            position += n;
+        }
+        return position;
+    }
+
+    private long map(InputStream inputStream, PartDigest digest, FileChannel channel) throws IOException {
+        long mapSize = properties.getMapSize().toBytes();
+        long position = 0;
+        while (true) {
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE, position, mapSize);
+            int n = ByteBuffers.readFully(inputStream, region);
+            digest.offer(region.duplicate());
+            if (properties.getSync() != StorageProperties.SyncMode.NONE) {
+                // Forcing the channel does not cover mapped regions
+                region.force();
+            }
+            position += n;
+            if (n < mapSize) {
+                break;
+            }
+        }
+        // The last region extended the file beyond the data
+        channel.truncate(position);
+        return position;
+    }
+
+    private void writeMetadata(UUID id, Map<String, String> metadata) throws IOException {
+        Properties file = new Properties();
+        file.putAll(metadata);
+        try (OutputStream outputStream = Files.newOutputStream(directory.resolve(id + ".properties"))) {
+            file.store(outputStream, null);
+        }
+    }
+
+    private Map<String, String> readMetadata(UUID id) throws IOException {
+        Properties file = new Properties();
+        try (InputStream inputStream = Files.newInputStream(directory.resolve(id + ".properties"))) {
+            file.load(inputStream);
+        } catch (NoSuchFileException e) {
+            return Map.of();
+        }
+        Map<String, String> metadata = new HashMap<>();
+        file.stringPropertyNames().forEach(key -> metadata.put(key, file.getProperty(key)));
+        return metadata;
+    }
+
+    private Path document(UUID id) {
+        return directory.resolve(id.toString());
+    }
+}
@@ -0,0 +1,32 @@
+package de.qaware.multipart;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.coyote.UpgradeProtocol;
+import org.apache.coyote.http2.Http2Protocol;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies {@link Http2Properties} to the HTTP/2 protocol, which serves h2c by prior knowledge or upgrade.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class Http2Customizer implements WebServerFactoryCustomizer<TomcatServletWebServerFactory> {
+    private final Http2Properties properties;
+
+    @Override
+    public void customize(TomcatServletWebServerFactory factory) {
+        // Connector customizers run after Spring Boot has added the protocol for server.http2.enabled
+        factory.addConnectorCustomizers(connector -> {
+            for (UpgradeProtocol upgradeProtocol : connector.findUpgradeProtocols()) {
+                if (upgradeProtocol instanceof Http2Protocol http2) {
+                    http2.setInitialWindowSize(Math.toIntExact(properties.getInitialWindowSize().toBytes()));
+                    http2.setMaxConcurrentStreams(properties.getMaxConcurrentStreams());
+                    http2.setMaxConcurrentStreamExecution(properties.getMaxConcurrentStreamExecution());
+                }
+            }
+        });
+    }
+}
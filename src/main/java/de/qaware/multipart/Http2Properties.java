@@ -0,0 +1,27 @@
+package de.qaware.multipart;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Tuning of the HTTP/2 protocol Tomcat offers when {@code server.http2.enabled} is set.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "http2")
+public class Http2Properties {
+    /**
+     * Flow control window of each stream. Tomcat's default of 64KB limits every upload to one window per round trip.
+     */
+    private DataSize initialWindowSize = DataSize.ofMegabytes(1);
+    /**
+     * Uploads a client may multiplex over one connection.
+     */
+    private long maxConcurrentStreams = 256;
+    /**
+     * Streams of one connection processed at once, further streams wait for a request thread.
+     */
+    private int maxConcurrentStreamExecution = 256;
+}
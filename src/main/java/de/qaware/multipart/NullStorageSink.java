@@ -0,0 +1,79 @@
+package de.qaware.multipart;
+
+import de.qaware.multipart.common.BufferPool;
+import de.qaware.multipart.common.ByteBuffers;
+import de.qaware.multipart.common.ConsumeType;
+import de.qaware.multipart.common.PooledBuffer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+/**
+ * Only computes the checksums and discards the data.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class NullStorageSink implements StorageSink {
+    private static final int BUFFER_SIZE = 32 * 1024;
+
+    private final BufferPool bufferPool;
+
+    @Override
+    public ConsumeType getType() {
+        return ConsumeType.NULL;
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return false;
+    }
+
+    @Override
+    public long store(UUID id, InputStream inputStream, PartDigest digest, Callable<Map<String, String>> metadata) throws IOException {
+        try (PooledBuffer pooledBuffer = acquireBuffer()) {
+            ByteBuffer buffer = pooledBuffer.buffer();
+            long numBytes = 0;
+            int n;
+            while ((n = ByteBuffers.readFully(inputStream, buffer)) > 0) {
+                digest.offer(buffer);
+                numBytes += n;
+                buffer.clear();
+            }
+            return numBytes;
+        }
+    }
+
+    @Override
+    public StoredDocument getDocument(UUID id) {
+        throw notStored();
+    }
+
+    @Override
+    public void readDocument(StoredDocument document, long offset, long count, OutputStream outputStream) {
+        throw notStored();
+    }
+
+    private PooledBuffer acquireBuffer() throws IOException {
+        try {
+            return bufferPool.acquire(BUFFER_SIZE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a free buffer");
+        }
+    }
+
+    private static ResponseStatusException notStored() {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "The null sink does not store documents");
+    }
+}
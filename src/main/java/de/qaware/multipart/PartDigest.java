@@ -0,0 +1,101 @@
+package de.qaware.multipart;
+
+import de.qaware.multipart.common.checksum.ChecksumAlgorithm;
+import de.qaware.multipart.common.checksum.Digest;
+import de.qaware.multipart.common.checksum.MultiDigest;
+import de.qaware.multipart.common.checksum.OffloadingDigest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Checksums of a single part, see {@link ChecksumService}.
+ */
+public class PartDigest implements Digest, AutoCloseable {
+    private final MultiDigest multiDigest;
+    private final TimedDigest timedDigest;
+    private final OffloadingDigest offloadingDigest;
+    private Map<ChecksumAlgorithm, String> values;
+
+    PartDigest(MultiDigest multiDigest, TimedDigest timedDigest, OffloadingDigest offloadingDigest) {
+        this.multiDigest = multiDigest;
+        this.timedDigest = timedDigest;
+        this.offloadingDigest = offloadingDigest;
+    }
+
+    @Override
+    public void update(ByteBuffer data) {
+        offloadingDigest.update(data);
+    }
+
+    /**
+     * Same as {@link #update(ByteBuffer)}, but failures to hand off data are reported as checked exceptions.
+     */
+    public void offer(ByteBuffer data) throws IOException {
+        offloadingDigest.offer(data);
+    }
+
+    /**
+     * Waits for all data to be digested and returns the final values. Can be called repeatedly.
+     */
+    public Map<ChecksumAlgorithm, String> finish() throws IOException {
+        if (values == null) {
+            offloadingDigest.await();
+            values = multiDigest.getValues();
+        }
+        return values;
+    }
+
+    /**
+     * Time spent hashing on any thread.
+     */
+    public long getHashNanos() {
+        return timedDigest.nanos.sum();
+    }
+
+    /**
+     * Time spent hashing on the thread which created the digest, before hashing was offloaded.
+     */
+    public long getInlineHashNanos() {
+        return timedDigest.inlineNanos.sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        offloadingDigest.close();
+    }
+
+    static class TimedDigest implements Digest {
+        private final Digest delegate;
+        private final Thread owner = Thread.currentThread();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder inlineNanos = new LongAdder();
+
+        TimedDigest(Digest delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void update(ByteBuffer data) {
+            long before = System.nanoTime();
+            delegate.update(data);
+            record(System.nanoTime() - before);
+        }
+
+        @Override
+        public void update(byte[] b, int off, int len) {
+            long before = System.nanoTime();
+            delegate.update(b, off, len);
+            record(System.nanoTime() - before);
+        }
+
+        private void record(long elapsed) {
+            nanos.add(elapsed);
+            if (Thread.currentThread() == owner) {
+                inlineNanos.add(elapsed);
+            }
+        }
+    }
+}
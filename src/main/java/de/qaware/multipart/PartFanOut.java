@@ -0,0 +1,200 @@
+package de.qaware.multipart;
+
+import de.qaware.multipart.common.BufferPool;
+import de.qaware.multipart.common.ByteBuffers;
+import de.qaware.multipart.common.PooledBuffer;
+import de.qaware.multipart.common.SpoolBuffer;
+import de.qaware.multipart.common.UploadResult;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Consumes the parts of a multipart request concurrently. The request thread copies each part into a
+ * {@link SpoolBuffer} while a sink task reads it, so the socket keeps draining while earlier parts are still
+ * being stored.
+ */
+@Service
+public class PartFanOut {
+    private static final int COPY_BUFFER_SIZE = 32 * 1024;
+
+    private final FanOutProperties properties;
+    private final BufferPool bufferPool;
+    private final ExecutorService sinkExecutor;
+
+    public PartFanOut(FanOutProperties properties, BufferPool bufferPool, Environment environment) {
+        this.properties = properties;
+        this.bufferPool = bufferPool;
+        this.sinkExecutor = Threading.VIRTUAL.isActive(environment)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newCachedThreadPool();
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public Request start() {
+        return new Request();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sinkExecutor.shutdown();
+    }
+
+    @FunctionalInterface
+    public interface PartSink {
+        UploadResult consume(InputStream inputStream) throws IOException;
+    }
+
+    /**
+     * Waits for the sink after the writer failed.
+     *
+     * @return whether the sink failed for a reason of its own, e.g. in the storage, rather than because of the writer
+     */
+    static boolean failedOnItsOwn(CompletableFuture<UploadResult> result, Throwable writerFailure) {
+        Throwable failure = result.handle((uploadResult, e) -> e).join();
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause == writerFailure) {
+                return false;
+            }
+        }
+        return failure != null;
+    }
+
+    /**
+     * Parts of a single request. Results are returned in the order the parts were submitted.
+     */
+    public class Request implements AutoCloseable {
+        private final Semaphore inFlight = new Semaphore(properties.getMaxParallelParts());
+        private final List<CompletableFuture<UploadResult>> results = new ArrayList<>();
+
+        private Request() {
+        }
+
+        /**
+         * Copies the part into a spool buffer consumed by the sink on another thread. Returns when the part has
+         * been read completely, blocks beforehand if too many parts are in flight or the buffer is full.
+         */
+        public void submit(InputStream part, PartSink sink) throws IOException {
+            failFast();
+            acquirePermit();
+            SpoolBuffer spool;
+            try {
+                spool = new SpoolBuffer(
+                        bufferPool,
+                        Math.toIntExact(properties.getChunkSize().toBytes()),
+                        properties.getMemoryPerPart().toBytes(),
+                        properties.isSpillToDisk() ? properties.getSpillDirectory() : null
+                );
+            } catch (RuntimeException e) {
+                inFlight.release();
+                throw e;
+            }
+
+            CompletableFuture<UploadResult> result = CompletableFuture.supplyAsync(() -> {
+                try (InputStream inputStream = spool.newInputStream()) {
+                    return sink.consume(inputStream);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    inFlight.release();
+                }
+            }, sinkExecutor);
+            results.add(result);
+
+            try (PooledBuffer pooledBuffer = acquireBuffer()) {
+                ByteBuffer buffer = pooledBuffer.buffer();
+                while (ByteBuffers.readFully(part, buffer) > 0) {
+                    spool.write(buffer);
+                    buffer.clear();
+                }
+                spool.finish();
+            } catch (IOException | RuntimeException e) {
+                spool.fail(e);
+                // A failed sink closes its spool buffer, report its cause instead
+                if (failedOnItsOwn(result, e)) {
+                    join(result);
+                }
+                throw e;
+            }
+        }
+
+        /**
+         * Waits for all parts and returns their results in submission order.
+         */
+        public List<UploadResult> results() throws IOException {
+            List<UploadResult> uploadResults = new ArrayList<>(results.size());
+            for (CompletableFuture<UploadResult> result : results) {
+                uploadResults.add(join(result));
+            }
+            return uploadResults;
+        }
+
+        /**
+         * Waits for sinks which are still running, so their buffers are back in the pool.
+         */
+        @Override
+        public void close() {
+            CompletableFuture.allOf(results.toArray(CompletableFuture[]::new))
+                    .exceptionally(e -> null)
+                    .join();
+        }
+
+        private void failFast() throws IOException {
+            for (CompletableFuture<UploadResult> result : results) {
+                if (result.isCompletedExceptionally()) {
+                    join(result);
+                }
+            }
+        }
+
+        private void acquirePermit() throws IOException {
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a part to complete");
+            }
+        }
+
+        private PooledBuffer acquireBuffer() throws IOException {
+            try {
+                return bufferPool.acquire(COPY_BUFFER_SIZE);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a free buffer");
+            }
+        }
+
+        private static UploadResult join(CompletableFuture<UploadResult> result) throws IOException {
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof UncheckedIOException uncheckedIOException) {
+                    throw uncheckedIOException.getCause();
+                }
+                if (cause instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new IOException("Consuming part failed", cause);
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package de.qaware.multipart;
+
+import de.qaware.multipart.common.multipart.PartHeaders;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Decides by {@code parts.routes} whether a part of a multipart request is stored, skipped or rejected, and in which
+ * sink. Declared sizes are checked before a part is read, the limits are enforced while it is read, so an oversized
+ * upload fails without receiving the rest of its body.
+ */
+@Component
+public class PartRouter {
+    private final PartRoutingProperties properties;
+    private final StorageSinks storageSinks;
+    private final List<Rule> rules;
+    private final Counter skippedParts;
+    private final Counter rejectedParts;
+
+    public PartRouter(PartRoutingProperties properties, StorageSinks storageSinks, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.storageSinks = storageSinks;
+        this.rules = properties.getRoutes().stream()
+                .map(route -> new Rule(route, route.getContentType() == null ? null : MimeTypeUtils.parseMimeType(route.getContentType())))
+                .toList();
+        this.skippedParts = Counter.builder("parts.skipped")
+                .description("Parts read past without hashing or storing them")
+                .register(meterRegistry);
+        this.rejectedParts = Counter.builder("parts.rejected")
+                .description("Parts which failed their request by route or limit")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts routing the parts of a request.
+     *
+     * @param sink selected for the whole request, used by parts whose route has no sink
+     * @throws ResponseStatusException with status 413 if the request declares a length above {@code parts.max-request-size}
+     */
+    public Request start(HttpServletRequest request, StorageSink sink) {
+        long maxRequestBytes = properties.getMaxRequestSize().toBytes();
+        long contentLength = request.getContentLengthLong();
+        if (maxRequestBytes > 0 && contentLength > maxRequestBytes) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Request of " + contentLength + " bytes exceeds the limit of " + maxRequestBytes + " bytes");
+        }
+        return new Request(sink, maxRequestBytes);
+    }
+
+    private Rule match(String name, MimeType contentType) {
+        for (Rule rule : rules) {
+            boolean nameMatches = rule.route().getName() == null || rule.route().getName().equals(name);
+            if (nameMatches && (rule.contentType() == null || rule.contentType().includes(contentType))) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    private static MimeType contentType(PartHeaders headers) {
+        String contentType = headers.get(HttpHeaders.CONTENT_TYPE);
+        if (contentType == null) {
+            return MimeTypeUtils.TEXT_PLAIN;
+        }
+        try {
+            return MimeTypeUtils.parseMimeType(contentType);
+        } catch (InvalidMimeTypeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid content type of part: " + contentType);
+        }
+    }
+
+    /**
+     * Skips without copying, {@code MultipartStream} only moves past its buffer until the next boundary.
+     */
+    private static void skip(InputStream content) throws IOException {
+        while (content.skip(Long.MAX_VALUE) > 0 || content.read() >= 0) {
+            // Until the end of the part
+        }
+    }
+
+    /**
+     * @param contentType {@code null} for any type
+     */
+    private record Rule(PartRoutingProperties.Route route, MimeType contentType) {
+    }
+
+    /**
+     * @param content limited to the size allowed for the part
+     */
+    public record Part(StorageSink sink, InputStream content) {
+    }
+
+    /**
+     * Parts of a single request, all of them are read on the request thread.
+     */
+    public class Request {
+        private final StorageSink sink;
+        private final long maxRequestBytes;
+        private long requestBytes;
+        private int numParts;
+
+        private Request(StorageSink sink, long maxRequestBytes) {
+            this.sink = sink;
+            this.maxRequestBytes = maxRequestBytes;
+        }
+
+        /**
+         * Routes the next part. A skipped part is read to its end right away.
+         *
+         * @return the part to store, {@code null} if it was skipped
+         * @throws ResponseStatusException with status 400 if the part is rejected by its route, with status 413 if it
+         *                                 exceeds {@code parts.max-parts} or declares a length above its limit
+         */
+        public Part next(PartHeaders headers, InputStream content) throws IOException {
+            String name = headers.getName();
+            int maxParts = properties.getMaxParts();
+            if (maxParts > 0 && ++numParts > maxParts) {
+                rejectedParts.increment();
+                throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "Request has more than " + maxParts + " parts");
+            }
+
+            Rule rule = match(name, contentType(headers));
+            PartRoutingProperties.Action action = rule == null ? properties.getUnmatched() : rule.route().getAction();
+            switch (action) {
+                case REJECT -> {
+                    rejectedParts.increment();
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Part '" + name + "' is not accepted");
+                }
+                case SKIP -> {
+                    skip(new LimitedInputStream(content, name, 0));
+                    skippedParts.increment();
+                    return null;
+                }
+                default -> {
+                    long maxPartBytes = rule == null || rule.route().getMaxSize() == null
+                            ? properties.getMaxPartSize().toBytes()
+                            : rule.route().getMaxSize().toBytes();
+                    checkDeclaredLength(headers, name, maxPartBytes);
+                    StorageSink partSink = rule == null || rule.route().getSink() == null
+                            ? sink
+                            : storageSinks.get(rule.route().getSink());
+                    return new Part(partSink, new LimitedInputStream(content, name, maxPartBytes));
+                }
+            }
+        }
+
+        /**
+         * Enforces {@code parts.max-part-size} and the request limit on a part which is not routed.
+         */
+        public InputStream limit(InputStream content) {
+            return new LimitedInputStream(content, null, properties.getMaxPartSize().toBytes());
+        }
+
+        private void checkDeclaredLength(PartHeaders headers, String name, long maxPartBytes) {
+            String contentLength = headers.get(HttpHeaders.CONTENT_LENGTH);
+            if (maxPartBytes <= 0 || contentLength == null) {
+                return;
+            }
+            try {
+                if (Long.parseLong(contentLength.trim()) > maxPartBytes) {
+                    rejectedParts.increment();
+                    throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                            "Part '" + name + "' of " + contentLength + " bytes exceeds the limit of " + maxPartBytes + " bytes");
+                }
+            } catch (NumberFormatException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid content length of part '" + name + "': " + contentLength);
+            }
+        }
+
+        private class LimitedInputStream extends FilterInputStream {
+            private final String name;
+            private final long maxPartBytes;
+            private long partBytes;
+
+            /**
+             * @param maxPartBytes zero for no limit on the part, the request limit applies anyway
+             */
+            LimitedInputStream(InputStream in, String name, long maxPartBytes) {
+                super(in);
+                this.name = name;
+                this.maxPartBytes = maxPartBytes;
+            }
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    count(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    count(n);
+                }
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped = super.skip(n);
+                count(skipped);
+                return skipped;
+            }
+
+            private void count(long n) throws UploadLimitExceededException {
+                partBytes += n;
+                requestBytes += n;
+                if (maxPartBytes > 0 && partBytes > maxPartBytes) {
+                    rejectedParts.increment();
+                    throw new UploadLimitExceededException(
+                            "Part " + (name == null ? "" : "'" + name + "' ") + "exceeds the limit of " + maxPartBytes + " bytes");
+                }
+                if (maxRequestBytes > 0 && requestBytes > maxRequestBytes) {
+                    rejectedParts.increment();
+                    throw new UploadLimitExceededException("Request exceeds the limit of " + maxRequestBytes + " bytes");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package de.qaware.multipart;
+
+import de.qaware.multipart.common.ConsumeType;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "parts")
+public class PartRoutingProperties {
+    /**
+     * Parts per multipart request, zero for no limit.
+     */
+    private int maxParts = 0;
+    /**
+     * Size of a single part, zero for no limit.
+     */
+    private DataSize maxPartSize = DataSize.ofBytes(0);
+    /**
+     * Size of all parts of a request, zero for no limit. Requests declaring a larger {@code Content-Length} are
+     * rejected before their body is read.
+     */
+    private DataSize maxRequestSize = DataSize.ofBytes(0);
+    /**
+     * Action for parts no route matches.
+     */
+    private Action unmatched = Action.STORE;
+    /**
+     * Checked in order, the first route matching name and content type of a part decides.
+     */
+    private List<Route> routes = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Route {
+        /**
+         * Field name of the part, any name if not set.
+         */
+        private String name;
+        /**
+         * Media range including the content type of the part, e.g. {@code image/*}, any type if not set.
+         * Parts without a content type are {@code text/plain}.
+         */
+        private String contentType;
+        private Action action = Action.STORE;
+        /**
+         * Sink of the part, the sink of the request if not set.
+         */
+        private ConsumeType sink;
+        /**
+         * Size of the part, {@code parts.max-part-size} if not set.
+         */
+        private DataSize maxSize;
+    }
+
+    public enum Action {
+        STORE,
+        /**
+         * Read past the part without hashing or storing it.
+         */
+        SKIP,
+        /**
+         * Fail the request with 400 before the part is read.
+         */
+        REJECT,
+    }
+}
@@ -0,0 +1,151 @@
+package de.qaware.multipart;
+
+import de.qaware.multipart.common.BufferPool;
+import de.qaware.multipart.common.ByteBuffers;
+import de.qaware.multipart.common.PooledBuffer;
+import de.qaware.multipart.common.SpoolBuffer;
+import de.qaware.multipart.common.UploadResult;
+import de.qaware.multipart.common.multipart.PartHeaders;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.apache.tomcat.util.http.fileupload.MultipartStream;
+import org.springframework.boot.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Stages a single named part of a multipart request, as the servlet container would for a {@code @RequestPart},
+ * without waiting for the whole part. The request thread copies the part into a {@link SpoolBuffer} which holds
+ * up to {@code staging.memory-threshold} bytes and spills the rest to a {@link StagingFiles} file, while the sink
+ * already reads from it on another thread. All other parts are skipped.
+ */
+@Service
+public class PartStaging {
+    private static final int COPY_BUFFER_SIZE = 32 * 1024;
+
+    private final StagingProperties properties;
+    private final StagingFiles stagingFiles;
+    private final BufferPool bufferPool;
+    private final Counter spilledParts;
+    private final ExecutorService sinkExecutor;
+
+    public PartStaging(StagingProperties properties, StagingFiles stagingFiles, BufferPool bufferPool,
+                       MeterRegistry meterRegistry, Environment environment) {
+        this.properties = properties;
+        this.stagingFiles = stagingFiles;
+        this.bufferPool = bufferPool;
+        this.spilledParts = Counter.builder("staging.spilled")
+                .description("Staged parts which exceeded the memory threshold and were written to a staging file")
+                .register(meterRegistry);
+        this.sinkExecutor = Threading.VIRTUAL.isActive(environment)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newCachedThreadPool();
+    }
+
+    /**
+     * Reads the remaining parts of the stream and hands the first one named {@code partName} to a sink.
+     *
+     * @param observe wraps the part as read from the request, before it is staged
+     * @param sinks   creates the sink for the part from its headers, called on the request thread
+     * @throws ResponseStatusException with status 400 if there is no such part
+     */
+    public UploadResult stage(MultipartStream multipartStream, String partName, UnaryOperator<InputStream> observe,
+                              Function<PartHeaders, PartFanOut.PartSink> sinks) throws IOException {
+        UploadResult result = null;
+        do {
+            PartHeaders headers = PartHeaders.parse(multipartStream.readHeaders());
+            if (result == null && partName.equals(headers.getName())) {
+                result = stage(observe.apply(multipartStream.newInputStream()), sinks.apply(headers));
+            } else {
+                multipartStream.discardBodyData();
+            }
+        } while (multipartStream.readBoundary());
+        if (result == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Required part '" + partName + "' is not present");
+        }
+        return result;
+    }
+
+    private UploadResult stage(InputStream part, PartFanOut.PartSink sink) throws IOException {
+        SpoolBuffer spool = new SpoolBuffer(
+                bufferPool,
+                Math.toIntExact(properties.getChunkSize().toBytes()),
+                properties.getMemoryThreshold().toBytes(),
+                stagingFiles
+        );
+        CompletableFuture<UploadResult> result = CompletableFuture.supplyAsync(() -> {
+            try (InputStream inputStream = spool.newInputStream()) {
+                return sink.consume(inputStream);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, sinkExecutor);
+
+        try (PooledBuffer pooledBuffer = acquireBuffer()) {
+            ByteBuffer buffer = pooledBuffer.buffer();
+            while (ByteBuffers.readFully(part, buffer) > 0) {
+                spool.write(buffer);
+                buffer.clear();
+            }
+            spool.finish();
+        } catch (IOException | RuntimeException e) {
+            spool.fail(e);
+            // A failed sink closes the spool buffer, report its cause instead
+            if (PartFanOut.failedOnItsOwn(result, e)) {
+                join(result);
+            }
+            throw e;
+        } finally {
+            // The sink has to be done with the spool buffer before the request moves on
+            result.exceptionally(e -> null).join();
+        }
+        if (spool.isSpilled()) {
+            spilledParts.increment();
+        }
+        return join(result);
+    }
+
+    private PooledBuffer acquireBuffer() throws IOException {
+        try {
+            return bufferPool.acquire(COPY_BUFFER_SIZE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a free buffer");
+        }
+    }
+
+    private static UploadResult join(CompletableFuture<UploadResult> result) throws IOException {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException("Consuming part failed", cause);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sinkExecutor.shutdown();
+    }
+}
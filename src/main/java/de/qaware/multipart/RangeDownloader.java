@@ -0,0 +1,119 @@
+package de.qaware.multipart;
+
+import com.azure.core.util.Context;
+import com.azure.storage.blob.BlobClient;
+import com.azure.storage.blob.models.BlobRange;
+import de.qaware.multipart.common.BufferPool;
+import de.qaware.multipart.common.ByteBuffers;
+import de.qaware.multipart.common.PooledBuffer;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Downloads ranges of blobs concurrently and writes them to the stream in order. At most
+ * {@code maxInFlightRanges} ranges are fetched or waiting for their predecessors at any time.
+ */
+@RequiredArgsConstructor
+class RangeDownloader {
+    private final BufferPool bufferPool;
+    private final int maxInFlightRanges;
+    private final Executor executor;
+    private final Timer downloadRangeTimer;
+
+    /**
+     * Splits {@code count} bytes of the blob starting at {@code offset} into ranges of at most {@code rangeSize}.
+     */
+    static List<Range> split(BlobClient blobClient, long offset, long count, int rangeSize) {
+        List<Range> ranges = new ArrayList<>();
+        long end = offset + count;
+        for (long position = offset; position < end; position += rangeSize) {
+            ranges.add(new Range(blobClient, position, (int) Math.min(rangeSize, end - position)));
+        }
+        return ranges;
+    }
+
+    void download(List<Range> ranges, OutputStream outputStream) throws IOException {
+        Deque<CompletableFuture<PooledBuffer>> inFlight = new ArrayDeque<>();
+        try {
+            for (Range range : ranges) {
+                if (inFlight.size() == maxInFlightRanges) {
+                    writeNext(inFlight, outputStream);
+                }
+                PooledBuffer buffer = acquire(range.length());
+                inFlight.add(CompletableFuture.supplyAsync(() -> fetch(range, buffer), executor));
+            }
+            while (!inFlight.isEmpty()) {
+                writeNext(inFlight, outputStream);
+            }
+        } finally {
+            // Ranges which are not written because of a failure give back their buffers once fetched
+            inFlight.forEach(range -> range.thenAccept(PooledBuffer::close));
+        }
+    }
+
+    private PooledBuffer fetch(Range range, PooledBuffer buffer) {
+        try {
+            ByteBuffer byteBuffer = buffer.buffer();
+            downloadRangeTimer.record(() -> range.blobClient().downloadStreamWithResponse(
+                    ByteBuffers.asOutputStream(byteBuffer), new BlobRange(range.position(), (long) range.length()),
+                    null, null, false, null, Context.NONE));
+            byteBuffer.flip();
+            if (byteBuffer.remaining() != range.length()) {
+                throw new IllegalStateException("Expected " + range.length() + " bytes at " + range.position()
+                        + " of " + range.blobClient().getBlobName() + " but got " + byteBuffer.remaining());
+            }
+            return buffer;
+        } catch (RuntimeException e) {
+            buffer.close();
+            range.failed().accept(e);
+            throw e;
+        }
+    }
+
+    private static void writeNext(Deque<CompletableFuture<PooledBuffer>> ranges, OutputStream outputStream) throws IOException {
+        PooledBuffer buffer;
+        try {
+            buffer = ranges.removeFirst().join();
+        } catch (CompletionException e) {
+            throw new IOException("Downloading range failed", e.getCause());
+        }
+        try (buffer) {
+            ByteBuffers.writeFully(buffer.buffer(), outputStream);
+        }
+    }
+
+    /**
+     * @param failed called if fetching the range failed, e.g. to report it for the container of the blob
+     */
+    record Range(BlobClient blobClient, long position, int length, Consumer<Throwable> failed) {
+        /**
+         * Range whose failures are only reported by the caller of {@link #download}.
+         */
+        Range(BlobClient blobClient, long position, int length) {
+            this(blobClient, position, length, failure -> {
+            });
+        }
+    }
+
+    private PooledBuffer acquire(int length) throws IOException {
+        try {
+            return bufferPool.acquire(length);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a free buffer");
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package de.qaware.multipart;
+
+import de.qaware.multipart.common.SpillFiles;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Files staged parts spill to. Up to {@code staging.preallocated-files} files are filled with zeros on startup and
+ * handed out again after use, truncated to their preallocated size, so their disk blocks stay allocated. Further
+ * files are created on demand and deleted after use.
+ * <p>
+ * Files are deleted when closed, a crashed server leaves them behind. Such stale files are removed on startup and
+ * by the first acquire after every sweep interval.
+ */
+@Slf4j
+@Component
+public class StagingFiles implements SpillFiles {
+    private static final String PREFIX = "staging-";
+    private static final int FILL_BUFFER_SIZE = 1024 * 1024;
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final StagingProperties properties;
+    private final ConcurrentLinkedDeque<FileChannel> idle = new ConcurrentLinkedDeque<>();
+    private final Map<FileChannel, Path> files = new ConcurrentHashMap<>();
+    private volatile long lastSweepNanos;
+
+    public StagingFiles(StagingProperties properties) throws IOException {
+        this.properties = properties;
+        Files.createDirectories(properties.getDirectory());
+        sweep();
+        lastSweepNanos = System.nanoTime();
+        for (int i = 0; i < properties.getPreallocatedFiles(); i++) {
+            idle.add(preallocate(create()));
+        }
+    }
+
+    @Override
+    public FileChannel acquire() throws IOException {
+        long now = System.nanoTime();
+        if (now - lastSweepNanos > SWEEP_INTERVAL_NANOS) {
+            lastSweepNanos = now;
+            sweep();
+        }
+        FileChannel channel = idle.pollFirst();
+        return channel != null ? channel : create();
+    }
+
+    @Override
+    public void release(FileChannel channel) throws IOException {
+        if (idle.size() >= properties.getPreallocatedFiles()) {
+            close(channel);
+            return;
+        }
+        try {
+            if (channel.size() > properties.getPreallocatedSize().toBytes()) {
+                channel.truncate(properties.getPreallocatedSize().toBytes());
+            }
+        } catch (IOException e) {
+            close(channel);
+            throw e;
+        }
+        idle.addFirst(channel);
+    }
+
+    @PreDestroy
+    void shutdown() throws IOException {
+        FileChannel channel;
+        while ((channel = idle.pollFirst()) != null) {
+            close(channel);
+        }
+    }
+
+    private FileChannel create() throws IOException {
+        Path path = Files.createTempFile(properties.getDirectory(), PREFIX, ".tmp");
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        files.put(channel, path);
+        return channel;
+    }
+
+    /**
+     * Writes zeros, extending the file with {@code truncate} or a single write at the end would leave it sparse.
+     */
+    private FileChannel preallocate(FileChannel channel) throws IOException {
+        ByteBuffer zeros = ByteBuffer.allocateDirect(FILL_BUFFER_SIZE);
+        long size = properties.getPreallocatedSize().toBytes();
+        for (long position = 0; position < size; ) {
+            zeros.clear().limit((int) Math.min(FILL_BUFFER_SIZE, size - position));
+            position += channel.write(zeros, position);
+        }
+        return channel;
+    }
+
+    private void close(FileChannel channel) throws IOException {
+        files.remove(channel);
+        channel.close();
+    }
+
+    /**
+     * Deletes staging files of other runs which have not been modified within {@code staging.stale-after}.
+     */
+    private void sweep() {
+        Instant staleBefore = Instant.now().minus(properties.getStaleAfter());
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(properties.getDirectory(), PREFIX + "*")) {
+            for (Path path : stream) {
+                if (!files.containsValue(path) && Files.getLastModifiedTime(path).toInstant().isBefore(staleBefore)) {
+                    Files.deleteIfExists(path);
+                    log.info("Deleted stale staging file {}", path);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Sweeping stale staging files failed", e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package de.qaware.multipart;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "staging")
+public class StagingProperties {
+    /**
+     * Bytes of a part held in memory until the sink catches up, further bytes are written to a staging file.
+     */
+    private DataSize memoryThreshold = DataSize.ofMegabytes(16);
+    private DataSize chunkSize = DataSize.ofMegabytes(1);
+    /**
+     * Should not be shared with other instances, idle files of another instance look stale.
+     */
+    private Path directory = Path.of(System.getProperty("java.io.tmpdir"), "multipart-staging");
+    /**
+     * Staging files written on startup and reused afterwards, so spilling does not allocate disk blocks.
+     */
+    private int preallocatedFiles = 2;
+    private DataSize preallocatedSize = DataSize.ofMegabytes(64);
+    /**
+     * Staging files left behind by a previous run are deleted once they have not been modified for this long.
+     */
+    private Duration staleAfter = Duration.ofHours(1);
+}
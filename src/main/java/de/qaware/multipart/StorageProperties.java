@@ -0,0 +1,58 @@
+package de.qaware.multipart;
+
+import de.qaware.multipart.common.ConsumeType;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "storage")
+public class StorageProperties {
+    /**
+     * Sink of requests without a {@value StorageSinks#SINK_HEADER} header.
+     */
+    private ConsumeType defaultSink = ConsumeType.NULL;
+    private File file = new File();
+
+    @Getter
+    @Setter
+    public static class File {
+        private Path directory = Path.of(System.getProperty("java.io.tmpdir"), "multipart-documents");
+        private WriteMode writeMode = WriteMode.TRANSFER;
+        /**
+         * Size of the file regions mapped at once in {@link WriteMode#MMAP} mode.
+         */
+        private DataSize mapSize = DataSize.ofMegabytes(64);
+        private SyncMode sync = SyncMode.NONE;
+    }
+
+    public enum WriteMode {
+        /**
+         * Copy the stream with {@link java.nio.channels.FileChannel#transferFrom}.
+         */
+        TRANSFER,
+        /**
+         * Read the stream straight into memory-mapped regions of the file.
+         */
+        MMAP,
+    }
+
+    public enum SyncMode {
+        /**
+         * Leave flushing to the operating system.
+         */
+        NONE,
+        /**
+         * Flush the content before a document is complete.
+         */
+        DATA,
+        /**
+         * Flush the content and file metadata before a document is complete.
+         */
+        ALL,
+    }
+}
@@ -0,0 +1,40 @@
+package de.qaware.multipart;
+
+import de.qaware.multipart.common.ConsumeType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+/**
+ * Backend the upload endpoints store parts in, see {@link StorageSinks}.
+ */
+public interface StorageSink {
+    ConsumeType getType();
+
+    /**
+     * @return false if the sink discards the data, stored documents get no id then
+     */
+    default boolean isPersistent() {
+        return true;
+    }
+
+    /**
+     * Reads the stream completely and feeds every byte into the digest.
+     *
+     * @param id       id of the new document, {@code null} if the sink is not persistent
+     * @param metadata requested after the stream has been read completely
+     * @return number of bytes stored
+     */
+    long store(UUID id, InputStream inputStream, PartDigest digest, Callable<Map<String, String>> metadata) throws IOException;
+
+    StoredDocument getDocument(UUID id) throws IOException;
+
+    /**
+     * Writes {@code count} bytes of the document starting at {@code offset}.
+     */
+    void readDocument(StoredDocument document, long offset, long count, OutputStream outputStream) throws IOException;
+}
@@ -0,0 +1,49 @@
+package de.qaware.multipart;
+
+import de.qaware.multipart.common.ConsumeType;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * All storage sinks. The deployment chooses the default with {@code storage.default-sink}, requests may select
+ * another one with the {@value #SINK_HEADER} header, e.g. {@code X-Storage-Sink: FILE}.
+ */
+@Component
+public class StorageSinks {
+    public static final String SINK_HEADER = "X-Storage-Sink";
+
+    private final StorageProperties properties;
+    private final Map<ConsumeType, StorageSink> sinks = new EnumMap<>(ConsumeType.class);
+
+    public StorageSinks(StorageProperties properties, List<StorageSink> sinks, CompressionStage compressionStage) {
+        this.properties = properties;
+        // Compressing what is discarded anyway only costs CPU and skews the measurements of the null sink
+        sinks.forEach(sink -> this.sinks.put(sink.getType(), sink.isPersistent() ? compressionStage.wrap(sink) : sink));
+    }
+
+    public StorageSink select(String header) {
+        ConsumeType type = properties.getDefaultSink();
+        if (header != null && !header.isBlank()) {
+            try {
+                type = ConsumeType.valueOf(header.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown storage sink in " + SINK_HEADER + ": " + header);
+            }
+        }
+        return get(type);
+    }
+
+    public StorageSink get(ConsumeType type) {
+        StorageSink sink = sinks.get(type);
+        if (sink == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Storage sink " + type + " is not available");
+        }
+        return sink;
+    }
+}
@@ -0,0 +1,17 @@
+package de.qaware.multipart;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A document in a storage sink.
+ *
+ * @param size       length of the document as uploaded
+ * @param storedSize bytes the sink holds, differs from {@code size} for compressed documents
+ * @param metadata   checksums and other metadata stored with the document
+ */
+public record StoredDocument(UUID id, long size, long storedSize, Map<String, String> metadata) {
+    public StoredDocument(UUID id, long size, Map<String, String> metadata) {
+        this(id, size, size, metadata);
+    }
+}
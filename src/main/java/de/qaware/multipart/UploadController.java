@@ -1,14 +1,17 @@
 package de.qaware.multipart;
 
-import de.qaware.multipart.common.MeteredInputStream;
+import de.qaware.multipart.common.PartTimings;
+import de.qaware.multipart.common.UploadResult;
+import de.qaware.multipart.common.checksum.ChecksumAlgorithm;
+import de.qaware.multipart.common.checksum.ExpectedDigests;
+import de.qaware.multipart.common.multipart.PartHeaders;
 import lombok.RequiredArgsConstructor;
-import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.tomcat.util.http.fileupload.MultipartStream;
 import org.apache.tomcat.util.http.fileupload.ParameterParser;
-import org.apache.tomcat.util.http.fileupload.util.Streams;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -18,83 +21,148 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-import java.util.zip.CRC32;
-import java.util.zip.CheckedOutputStream;
-import java.util.zip.Checksum;
 
 @Slf4j
 @RestController
 @RequestMapping("/api")
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 public class UploadController {
-    private static final int BUFFER_SIZE = 32 * 1024;
-    @Setter
-    private ConsumeType consumeType = ConsumeType.NULL;
-    private final BlobStorageAzure blobStorageAzure;
+    private static final String ENDPOINT_MULTIPART = "multipart";
+    private static final String ENDPOINT_MULTIPART_FILE = "multipart-file";
+    private static final String ENDPOINT_SINGLEPART = "singlepart";
+    private static final String FILE_PART_NAME = "file1";
+    private final StorageSinks storageSinks;
+    private final UploadMetrics uploadMetrics;
+    private final ChecksumService checksumService;
+    private final PartFanOut partFanOut;
+    private final PartStaging partStaging;
+    private final PartRouter partRouter;
 
+    /**
+     * Stores every part routed by {@link PartRouter}, skipped parts are not part of the result.
+     */
     @PostMapping(value = "multipart", produces = MediaType.APPLICATION_JSON_VALUE, consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<List<UploadResult>> storeDocument(MultipartHttpServletRequest request) throws IOException {
-        MultipartStream multipartStream = createMultipartStream(request);
-        boolean hasData = multipartStream.skipPreamble();
-        if (!hasData) {
-            throw new IOException("No data to read from multipart stream");
-        }
+        Set<ChecksumAlgorithm> algorithms = checksumService.algorithms(request.getHeader(ChecksumService.ALGORITHMS_HEADER));
+        StorageSink sink = storageSinks.select(request.getHeader(StorageSinks.SINK_HEADER));
+        PartRouter.Request routing = partRouter.start(request, sink);
+        try (UploadObservation observation = uploadMetrics.start(ENDPOINT_MULTIPART, sink.getType())) {
+            MultipartStream multipartStream = createMultipartStream(request);
+            boolean hasData = multipartStream.skipPreamble();
+            if (!hasData) {
+                throw new IOException("No data to read from multipart stream");
+            }
+            if (partFanOut.isEnabled()) {
+                return ResponseEntity.ok(fanOut(multipartStream, routing, algorithms, observation));
+            }
 
-        List<UploadResult> uploadResults = new ArrayList<>();
-        do {
-            multipartStream.readHeaders();
-            Checksum checksum = new CRC32();
-            long numBytes = consumeData(multipartStream.newInputStream(), checksum);
-            uploadResults.add(new UploadResult(numBytes, checksum.getValue()));
-        } while (multipartStream.readBoundary());
-        return ResponseEntity.ok(uploadResults);
+            List<UploadResult> uploadResults = new ArrayList<>();
+            do {
+                PartHeaders headers = PartHeaders.parse(multipartStream.readHeaders());
+                PartRouter.Part part = routing.next(headers, multipartStream.newInputStream());
+                if (part != null) {
+                    uploadResults.add(consumeData(part.content(), part.sink(), algorithms,
+                            checksumService.expected(headers::get), observation));
+                }
+            } while (multipartStream.readBoundary());
+            return ResponseEntity.ok(uploadResults);
+        }
     }
 
+    /**
+     * Stores the part named {@code file1}, staged by {@link PartStaging} instead of being buffered completely by the
+     * servlet container.
+     */
     @PostMapping(value = "multipart/file", produces = MediaType.APPLICATION_JSON_VALUE, consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<List<UploadResult>> storeDocument(@RequestPart(name = "file1") InputStreamResource multipartFile) throws IOException {
-        Checksum checksum = new CRC32();
-        long numBytes = consumeData(multipartFile.getInputStream(), checksum);
-        return ResponseEntity.ok(List.of(new UploadResult(numBytes, checksum.getValue())));
+    public ResponseEntity<List<UploadResult>> storeFile(MultipartHttpServletRequest request) throws IOException {
+        Set<ChecksumAlgorithm> algorithms = checksumService.algorithms(request.getHeader(ChecksumService.ALGORITHMS_HEADER));
+        StorageSink sink = storageSinks.select(request.getHeader(StorageSinks.SINK_HEADER));
+        PartRouter.Request routing = partRouter.start(request, sink);
+        try (UploadObservation observation = uploadMetrics.start(ENDPOINT_MULTIPART_FILE, sink.getType())) {
+            MultipartStream multipartStream = createMultipartStream(request);
+            if (!multipartStream.skipPreamble()) {
+                throw new IOException("No data to read from multipart stream");
+            }
+            UploadResult uploadResult = partStaging.stage(
+                    multipartStream,
+                    FILE_PART_NAME,
+                    part -> observation.observe(routing.limit(part)),
+                    headers -> {
+                        ExpectedDigests expected = checksumService.expected(headers::get);
+                        return staged -> consumeObserved(staged, sink, algorithms, expected, observation);
+                    }
+            );
+            return ResponseEntity.ok(List.of(uploadResult));
+        }
     }
 
     @PostMapping(value = "singlepart", produces = MediaType.APPLICATION_JSON_VALUE, consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
-    public ResponseEntity<UploadResult> upload(@RequestBody InputStreamResource inputStream) throws IOException {
-        Checksum checksum = new CRC32();
-        long numBytes = consumeData(inputStream.getInputStream(), checksum);
-        return ResponseEntity.ok(new UploadResult(numBytes, checksum.getValue()));
-    }
-
-    private long consumeData(InputStream inputStream, Checksum checksum) throws IOException {
-        MeteredInputStream meteredInputStream = new MeteredInputStream(inputStream);
-        long numBytes = switch (consumeType) {
-            case NULL -> readBodyData(inputStream, checksum);
-            case BLOB -> storeInBlob(meteredInputStream);
-        };
-        meteredInputStream.toCsv(Path.of("stats-server.csv"));
-        return numBytes;
+    public ResponseEntity<UploadResult> upload(
+            @RequestBody InputStreamResource inputStream,
+            @RequestHeader(name = ChecksumService.ALGORITHMS_HEADER, required = false) String checksumAlgorithms,
+            @RequestHeader(name = StorageSinks.SINK_HEADER, required = false) String sinkName,
+            @RequestHeader HttpHeaders headers
+    ) throws IOException {
+        Set<ChecksumAlgorithm> algorithms = checksumService.algorithms(checksumAlgorithms);
+        StorageSink sink = storageSinks.select(sinkName);
+        ExpectedDigests expected = checksumService.expected(headers::getFirst);
+        try (UploadObservation observation = uploadMetrics.start(ENDPOINT_SINGLEPART, sink.getType())) {
+            return ResponseEntity.ok(consumeData(inputStream.getInputStream(), sink, algorithms, expected, observation));
+        }
     }
 
-    private long readBodyData(InputStream inputStream, Checksum checksum) throws IOException {
-        try (OutputStream outputStream = OutputStream.nullOutputStream();
-             CheckedOutputStream checkedOutputStream = new CheckedOutputStream(outputStream, checksum)) {
-            byte[] buffer = new byte[BUFFER_SIZE];
-            return Streams.copy(inputStream, checkedOutputStream, false, buffer);
+    private List<UploadResult> fanOut(MultipartStream multipartStream, PartRouter.Request routing,
+                                      Set<ChecksumAlgorithm> algorithms, UploadObservation observation) throws IOException {
+        try (PartFanOut.Request fanOut = partFanOut.start()) {
+            do {
+                PartHeaders headers = PartHeaders.parse(multipartStream.readHeaders());
+                PartRouter.Part part = routing.next(headers, multipartStream.newInputStream());
+                if (part == null) {
+                    continue;
+                }
+                ExpectedDigests expected = checksumService.expected(headers::get);
+                // Reading the part from the socket is parse time, the sink reads the spooled copy
+                fanOut.submit(
+                        observation.observe(part.content()),
+                        spooled -> consumeObserved(spooled, part.sink(), algorithms, expected, observation)
+                );
+            } while (multipartStream.readBoundary());
+            return fanOut.results();
         }
     }
 
-    private long storeInBlob(InputStream inputStream) {
-        MeteredInputStream meteredInputStream = new MeteredInputStream(inputStream);
-        blobStorageAzure.storeDocument(UUID.randomUUID(), meteredInputStream);
-        return 0;
+    private UploadResult consumeData(InputStream inputStream, StorageSink sink, Set<ChecksumAlgorithm> algorithms,
+                                     ExpectedDigests expected, UploadObservation observation) throws IOException {
+        return consumeObserved(observation.observe(inputStream), sink, algorithms, expected, observation);
     }
 
+    /**
+     * Length and digests are computed while the sink stores the part. Digests announced by the client are verified
+     * when the sink asks for the metadata right before its commit, and once more for sinks which do not commit.
+     */
+    private UploadResult consumeObserved(InputStream observedInputStream, StorageSink sink, Set<ChecksumAlgorithm> algorithms,
+                                         ExpectedDigests expected, UploadObservation observation) throws IOException {
+        long tStart = System.nanoTime();
+        try (PartDigest digest = checksumService.start(algorithms, expected)) {
+            UUID documentId = sink.isPersistent() ? UUID.randomUUID() : null;
+            UploadObservation.PartInputStream part = observation.timePart(observedInputStream);
+            long numBytes = sink.store(documentId, part, digest, () -> {
+                expected.verify(digest.finish());
+                return ChecksumService.toMetadata(digest.finish());
+            });
+            Map<ChecksumAlgorithm, String> checksums = digest.finish();
+            expected.verify(checksums);
+            PartTimings timings = observation.partCompleted(numBytes, System.nanoTime() - tStart, part,
+                    digest.getHashNanos(), digest.getInlineHashNanos());
+            return ChecksumService.toUploadResult(numBytes, checksums, documentId, timings);
+        }
+    }
 
     private MultipartStream createMultipartStream(MultipartHttpServletRequest request) throws IOException {
         return new MultipartStream(
@@ -0,0 +1,42 @@
+package de.qaware.multipart;
+
+import com.azure.storage.blob.models.BlobStorageException;
+import de.qaware.multipart.common.BufferPoolExhaustedException;
+import de.qaware.multipart.common.checksum.DigestMismatchException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@Slf4j
+@RestControllerAdvice
+public class UploadExceptionHandler {
+
+    @ExceptionHandler(BufferPoolExhaustedException.class)
+    public ResponseEntity<String> handleBufferPoolExhausted(BufferPoolExhaustedException e) {
+        log.warn("Rejecting upload: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+    }
+
+    @ExceptionHandler(DigestMismatchException.class)
+    public ResponseEntity<String> handleDigestMismatch(DigestMismatchException e) {
+        log.warn("Rejecting upload: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+    }
+
+    @ExceptionHandler(UploadLimitExceededException.class)
+    public ResponseEntity<String> handleUploadLimitExceeded(UploadLimitExceededException e) {
+        log.warn("Rejecting upload: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(e.getMessage());
+    }
+
+    @ExceptionHandler(BlobStorageException.class)
+    public ResponseEntity<String> handleBlobStorage(BlobStorageException e) {
+        if (e.getStatusCode() == HttpStatus.NOT_FOUND.value()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Document not found");
+        }
+        log.warn("Storage request failed: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(e.getErrorCode() == null ? "Storage request failed" : e.getErrorCode().toString());
+    }
+}
@@ -0,0 +1,12 @@
+package de.qaware.multipart;
+
+import java.io.IOException;
+
+/**
+ * A part or the whole request is larger than configured in {@code parts}.
+ */
+public class UploadLimitExceededException extends IOException {
+    public UploadLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,59 @@
+package de.qaware.multipart;
+
+import de.qaware.multipart.common.ConsumeType;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Micrometer meters of the upload endpoints, tagged by endpoint and sink.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class UploadMetrics {
+    private final MeterRegistry registry;
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    public UploadObservation start(String endpoint, ConsumeType consumeType) {
+        AtomicInteger counter = inFlight.computeIfAbsent(endpoint, this::registerInFlight);
+        counter.incrementAndGet();
+        return new UploadObservation(this, endpoint, consumeType.name().toLowerCase(Locale.ROOT), counter);
+    }
+
+    private AtomicInteger registerInFlight(String endpoint) {
+        AtomicInteger counter = new AtomicInteger();
+        Gauge.builder("upload.inflight", counter, AtomicInteger::get)
+                .description("Uploads currently being processed")
+                .tag("endpoint", endpoint)
+                .register(registry);
+        return counter;
+    }
+
+    Timer timer(String name, String description, String endpoint, String sink) {
+        return Timer.builder(name)
+                .description(description)
+                .tag("endpoint", endpoint)
+                .tag("sink", sink)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    DistributionSummary summary(String name, String description, String baseUnit, String endpoint, String sink) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .baseUnit(baseUnit)
+                .tag("endpoint", endpoint)
+                .tag("sink", sink)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
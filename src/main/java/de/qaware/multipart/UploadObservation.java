@@ -0,0 +1,151 @@
+package de.qaware.multipart;
+
+import de.qaware.multipart.common.PartTimings;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timings of a single upload request. Time spent reading the observed part streams counts as parse time,
+ * the remaining time spent consuming a part is attributed to the sink. Parts may be completed concurrently,
+ * but the part streams have to be observed on the request thread.
+ * <p>
+ * Each part also gets its own breakdown, measured on the thread consuming it, see {@link #timePart}.
+ */
+public class UploadObservation implements AutoCloseable {
+    private final UploadMetrics metrics;
+    private final String endpoint;
+    private final String sink;
+    private final AtomicInteger inFlight;
+    private final long startNanos = System.nanoTime();
+
+    private long firstByteNanos = -1;
+    private long parseNanos;
+    private final LongAdder consumeNanos = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final LongAdder numBytes = new LongAdder();
+    private final LongAdder numParts = new LongAdder();
+
+    UploadObservation(UploadMetrics metrics, String endpoint, String sink, AtomicInteger inFlight) {
+        this.metrics = metrics;
+        this.endpoint = endpoint;
+        this.sink = sink;
+        this.inFlight = inFlight;
+    }
+
+    public InputStream observe(InputStream inputStream) {
+        return new TimedInputStream(inputStream);
+    }
+
+    /**
+     * Times the reads of the sink from its part, on a spooled copy this includes waiting for the request thread.
+     */
+    public PartInputStream timePart(InputStream inputStream) {
+        return new PartInputStream(inputStream);
+    }
+
+    /**
+     * @param part            the stream returned by {@link #timePart} for this part
+     * @param inlineHashNanos hashing on the consuming thread, which is not counted as storing
+     */
+    public PartTimings partCompleted(long partBytes, long partConsumeNanos, PartInputStream part,
+                                     long partHashNanos, long inlineHashNanos) {
+        numParts.increment();
+        numBytes.add(partBytes);
+        consumeNanos.add(partConsumeNanos);
+        hashNanos.add(partHashNanos);
+        long storeNanos = Math.max(0, partConsumeNanos - part.nanos - inlineHashNanos);
+        return new PartTimings(
+                TimeUnit.NANOSECONDS.toMicros(part.nanos),
+                TimeUnit.NANOSECONDS.toMicros(partHashNanos),
+                TimeUnit.NANOSECONDS.toMicros(storeNanos),
+                TimeUnit.NANOSECONDS.toMicros(partConsumeNanos)
+        );
+    }
+
+    @Override
+    public void close() {
+        inFlight.decrementAndGet();
+        long durationNanos = System.nanoTime() - startNanos;
+        long bytes = numBytes.sum();
+
+        metrics.timer("upload.duration", "Total time of an upload request", endpoint, sink)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        if (firstByteNanos >= 0) {
+            metrics.timer("upload.time.to.first.byte", "Time until the first byte of payload was read", endpoint, sink)
+                    .record(firstByteNanos - startNanos, TimeUnit.NANOSECONDS);
+        }
+        metrics.timer("upload.parse", "Time spent receiving and parsing payload", endpoint, sink)
+                .record(parseNanos, TimeUnit.NANOSECONDS);
+        metrics.timer("upload.sink", "Time spent in the sink", endpoint, sink)
+                .record(Math.max(0, consumeNanos.sum() - parseNanos), TimeUnit.NANOSECONDS);
+        metrics.timer("upload.hash", "Time spent computing digests, on any thread", endpoint, sink)
+                .record(hashNanos.sum(), TimeUnit.NANOSECONDS);
+        metrics.summary("upload.bytes", "Payload bytes per request", "bytes", endpoint, sink)
+                .record(bytes);
+        metrics.summary("upload.parts", "Parts per request", "parts", endpoint, sink)
+                .record(numParts.sum());
+        if (durationNanos > 0) {
+            metrics.summary("upload.throughput", "Payload throughput per request", "bytes/s", endpoint, sink)
+                    .record(bytes * 1e9 / durationNanos);
+        }
+    }
+
+    private class TimedInputStream extends FilterInputStream {
+        TimedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long before = System.nanoTime();
+            int b = super.read();
+            afterRead(before, b >= 0);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long before = System.nanoTime();
+            int n = super.read(b, off, len);
+            afterRead(before, n > 0);
+            return n;
+        }
+
+        private void afterRead(long before, boolean gotData) {
+            long after = System.nanoTime();
+            parseNanos += after - before;
+            if (gotData && firstByteNanos < 0) {
+                firstByteNanos = after;
+            }
+        }
+    }
+
+    public static class PartInputStream extends FilterInputStream {
+        private long nanos;
+
+        private PartInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long before = System.nanoTime();
+            int b = super.read();
+            nanos += System.nanoTime() - before;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long before = System.nanoTime();
+            int n = super.read(b, off, len);
+            nanos += System.nanoTime() - before;
+            return n;
+        }
+    }
+}
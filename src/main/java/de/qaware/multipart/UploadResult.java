@@ -1,4 +0,0 @@
-package de.qaware.multipart;
-
-public record UploadResult(long bytes, long crc32) {
-}
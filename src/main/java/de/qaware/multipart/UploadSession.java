@@ -0,0 +1,140 @@
+package de.qaware.multipart;
+
+import de.qaware.multipart.common.checksum.Crc32Combine;
+import lombok.Getter;
+
+import java.util.BitSet;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * State of a resumable upload, the id is also the id of the resulting blob. Chunk {@code i} covers the bytes
+ * from {@code i * chunkSize} and is staged as block {@code i}.
+ */
+@Getter
+class UploadSession {
+    private final UUID id;
+    private final long length;
+    private final int chunkSize;
+    private final int numChunks;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final BitSet received = new BitSet();
+    private final long[] chunkCrc32s;
+    /**
+     * Chunk writes share the read lock, completing takes the write lock, so it waits for chunks being staged.
+     */
+    private final ReentrantReadWriteLock completionLock = new ReentrantReadWriteLock();
+    private boolean completing;
+    private volatile long lastAccessNanos = System.nanoTime();
+
+    UploadSession(UUID id, long length, int chunkSize) {
+        this.id = id;
+        this.length = length;
+        this.chunkSize = chunkSize;
+        this.numChunks = Math.toIntExact((length + chunkSize - 1) / chunkSize);
+        this.chunkCrc32s = new long[numChunks];
+    }
+
+    long chunkStart(int index) {
+        return (long) index * chunkSize;
+    }
+
+    int chunkLength(int index) {
+        return (int) Math.min(chunkSize, length - chunkStart(index));
+    }
+
+    void touch() {
+        lastAccessNanos = System.nanoTime();
+    }
+
+    /**
+     * @param crc32 of the chunk, replaces the one of an earlier upload of the same chunk
+     */
+    void received(int index, long crc32) {
+        lock.lock();
+        try {
+            received.set(index);
+            chunkCrc32s[index] = crc32;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Keeps the session from being completed until {@link #endWrite()}.
+     *
+     * @return {@code false} if the session is being completed, the chunk must not be written then
+     */
+    boolean startWrite() {
+        completionLock.readLock().lock();
+        if (completing) {
+            completionLock.readLock().unlock();
+            return false;
+        }
+        return true;
+    }
+
+    void endWrite() {
+        completionLock.readLock().unlock();
+    }
+
+    /**
+     * Waits for the chunks being written, further writes are refused until {@link #cancelCompleting()}.
+     *
+     * @return {@code false} if the session is being completed already
+     */
+    boolean startCompleting() {
+        completionLock.writeLock().lock();
+        try {
+            if (completing) {
+                return false;
+            }
+            completing = true;
+            return true;
+        } finally {
+            completionLock.writeLock().unlock();
+        }
+    }
+
+    void cancelCompleting() {
+        completionLock.writeLock().lock();
+        try {
+            completing = false;
+        } finally {
+            completionLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * CRC32 of the whole upload, combined from the CRC32 of its chunks. All chunks must have been received.
+     */
+    long crc32() {
+        lock.lock();
+        try {
+            long crc32 = 0;
+            for (int index = 0; index < numChunks; index++) {
+                crc32 = Crc32Combine.combine(crc32, chunkCrc32s[index], chunkLength(index));
+            }
+            return crc32;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    UploadSessionStatus status() {
+        lock.lock();
+        try {
+            int contiguous = received.nextClearBit(0);
+            long offset = Math.min(length, chunkStart(contiguous));
+            long receivedBytes = (long) received.cardinality() * chunkSize;
+            if (numChunks > 0 && received.get(numChunks - 1)) {
+                // The last chunk may be shorter
+                receivedBytes -= chunkSize - chunkLength(numChunks - 1);
+            }
+            return new UploadSessionStatus(id, length, chunkSize, offset, receivedBytes, numChunks - received.cardinality());
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package de.qaware.multipart;
+
+import de.qaware.multipart.common.ConsumeType;
+import de.qaware.multipart.common.PartTimings;
+import de.qaware.multipart.common.UploadResult;
+import de.qaware.multipart.common.checksum.ChecksumAlgorithm;
+import de.qaware.multipart.common.checksum.DigestingInputStream;
+import de.qaware.multipart.common.checksum.ExpectedDigests;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Resumable uploads, see {@link UploadSessions}:
+ * <ol>
+ *     <li>{@code POST /api/uploads} with an {@value #UPLOAD_LENGTH} header opens a session</li>
+ *     <li>{@code PUT /api/uploads/{id}} with a {@code Content-Range} header uploads one chunk</li>
+ *     <li>{@code GET /api/uploads/{id}} reports the received bytes</li>
+ *     <li>{@code POST /api/uploads/{id}/complete} stores the document</li>
+ * </ol>
+ * Every response carries the {@value #UPLOAD_OFFSET}, {@value #UPLOAD_LENGTH} and {@value #UPLOAD_CHUNK_SIZE}
+ * headers.
+ */
+@RestController
+@RequestMapping("/api/uploads")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class UploadSessionController {
+    public static final String UPLOAD_LENGTH = "Upload-Length";
+    public static final String UPLOAD_OFFSET = "Upload-Offset";
+    public static final String UPLOAD_CHUNK_SIZE = "Upload-Chunk-Size";
+    private static final String ENDPOINT_UPLOADS = "uploads";
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+)");
+
+    private final UploadSessions uploadSessions;
+    private final UploadMetrics uploadMetrics;
+    private final ChecksumService checksumService;
+
+    @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<UploadSessionStatus> create(@RequestHeader(UPLOAD_LENGTH) long length) {
+        UploadSessionStatus status = uploadSessions.create(length);
+        return ResponseEntity.created(URI.create("/api/uploads/" + status.id()))
+                .headers(headers(status))
+                .body(status);
+    }
+
+    @GetMapping(value = "{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<UploadSessionStatus> status(@PathVariable UUID id) {
+        UploadSessionStatus status = uploadSessions.status(id);
+        return ResponseEntity.ok().headers(headers(status)).body(status);
+    }
+
+    /**
+     * Uploads one chunk, the response contains its checksums.
+     */
+    @PutMapping(value = "{id}", produces = MediaType.APPLICATION_JSON_VALUE, consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<UploadResult> write(
+            @PathVariable UUID id,
+            @RequestHeader(HttpHeaders.CONTENT_RANGE) String contentRange,
+            @RequestBody InputStreamResource inputStream,
+            @RequestHeader(name = ChecksumService.ALGORITHMS_HEADER, required = false) String checksumAlgorithms,
+            @RequestHeader HttpHeaders requestHeaders
+    ) throws IOException {
+        Set<ChecksumAlgorithm> algorithms = checksumService.algorithms(checksumAlgorithms);
+        ExpectedDigests expected = checksumService.expected(requestHeaders::getFirst);
+        Matcher range = CONTENT_RANGE.matcher(contentRange.trim());
+        if (!range.matches()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid Content-Range: " + contentRange);
+        }
+        long start = Long.parseLong(range.group(1));
+        long end = Long.parseLong(range.group(2));
+        long length = Long.parseLong(range.group(3));
+
+        try (UploadObservation observation = uploadMetrics.start(ENDPOINT_UPLOADS, ConsumeType.BLOB);
+             PartDigest digest = checksumService.start(algorithms, expected)) {
+            long tStart = System.nanoTime();
+            UploadObservation.PartInputStream part = observation.timePart(observation.observe(inputStream.getInputStream()));
+            // The chunk is read to its end before it is staged, so a mismatch keeps it from being staged
+            InputStream verifyingInputStream = new VerifyingInputStream(new DigestingInputStream(part, digest), digest, expected);
+            UploadSessionStatus status = uploadSessions.write(id, start, end, length, verifyingInputStream);
+            Map<ChecksumAlgorithm, String> checksums = digest.finish();
+            long numBytes = end - start + 1;
+            PartTimings timings = observation.partCompleted(numBytes, System.nanoTime() - tStart, part,
+                    digest.getHashNanos(), digest.getInlineHashNanos());
+            return ResponseEntity.ok().headers(headers(status)).body(ChecksumService.toUploadResult(numBytes, checksums, null, timings));
+        }
+    }
+
+    @PostMapping(value = "{id}/complete", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<UploadResult> complete(@PathVariable UUID id) throws IOException {
+        return ResponseEntity.ok(uploadSessions.complete(id));
+    }
+
+    @DeleteMapping("{id}")
+    public ResponseEntity<Void> abort(@PathVariable UUID id) {
+        uploadSessions.abort(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    private static HttpHeaders headers(UploadSessionStatus status) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(UPLOAD_OFFSET, Long.toString(status.offset()));
+        headers.set(UPLOAD_LENGTH, Long.toString(status.length()));
+        headers.set(UPLOAD_CHUNK_SIZE, Integer.toString(status.chunkSize()));
+        return headers;
+    }
+}
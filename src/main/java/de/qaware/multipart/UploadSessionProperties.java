@@ -0,0 +1,22 @@
+package de.qaware.multipart;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "upload-session")
+public class UploadSessionProperties {
+    /**
+     * Size of the ranges a client uploads, each one is staged as a single block.
+     */
+    private DataSize chunkSize = DataSize.ofMegabytes(8);
+    /**
+     * Sessions without any request for this long are discarded.
+     */
+    private Duration expiry = Duration.ofHours(24);
+}
@@ -0,0 +1,11 @@
+package de.qaware.multipart;
+
+import java.util.UUID;
+
+/**
+ * @param offset        all bytes before this offset have been received
+ * @param receivedBytes bytes received in total, including chunks after gaps
+ */
+public record UploadSessionStatus(UUID id, long length, int chunkSize, long offset, long receivedBytes,
+                                  int missingChunks) {
+}
@@ -0,0 +1,151 @@
+package de.qaware.multipart;
+
+import de.qaware.multipart.common.UploadResult;
+import de.qaware.multipart.common.checksum.ChecksumAlgorithm;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * Resumable uploads. Clients send the chunks of a session in any order and possibly in parallel, each chunk is
+ * staged as a block right away. Completing the session commits the block list.
+ * <p>
+ * Sessions are only kept in memory, so a client has to talk to the same instance for the whole upload.
+ * Blocks of abandoned sessions are never committed and are removed by the storage service eventually.
+ */
+@Slf4j
+@Service
+public class UploadSessions {
+    private final UploadSessionProperties properties;
+    private final BlobStorageAzure blobStorageAzure;
+    private final Map<UUID, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    public UploadSessions(UploadSessionProperties properties, BufferPoolProperties bufferPoolProperties,
+                          BlobStorageAzure blobStorageAzure) {
+        // Every chunk is held in one pooled buffer while it is staged
+        if (properties.getChunkSize().toBytes() > bufferPoolProperties.getMaxBufferSize().toBytes()) {
+            throw new IllegalStateException("upload-session.chunk-size " + properties.getChunkSize()
+                    + " exceeds buffer-pool.max-buffer-size " + bufferPoolProperties.getMaxBufferSize());
+        }
+        this.properties = properties;
+        this.blobStorageAzure = blobStorageAzure;
+    }
+
+    public UploadSessionStatus create(long length) {
+        if (length < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Upload length must not be negative");
+        }
+        expire();
+        UploadSession session = new UploadSession(UUID.randomUUID(), length, Math.toIntExact(properties.getChunkSize().toBytes()));
+        sessions.put(session.getId(), session);
+        log.info("Created upload session {} for {} bytes in {} chunks", session.getId(), length, session.getNumChunks());
+        return session.status();
+    }
+
+    public UploadSessionStatus status(UUID id) {
+        return get(id).status();
+    }
+
+    /**
+     * Stages the chunk starting at {@code start}, which has to be a multiple of the chunk size. Uploading the same
+     * chunk again replaces it. Chunks are refused with 409 while the session is being completed.
+     *
+     * @param end offset of the last byte, inclusive as in {@code Content-Range}
+     */
+    public UploadSessionStatus write(UUID id, long start, long end, long length, InputStream inputStream) throws IOException {
+        UploadSession session = get(id);
+        if (length != session.getLength()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Upload length is " + session.getLength() + " but got " + length);
+        }
+        if (start < 0 || start >= length || start % session.getChunkSize() != 0) {
+            throw new ResponseStatusException(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, "Range must start at a chunk boundary: " + start);
+        }
+        int index = Math.toIntExact(start / session.getChunkSize());
+        int chunkLength = session.chunkLength(index);
+        if (end - start + 1 != chunkLength) {
+            throw new ResponseStatusException(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, "Chunk " + index + " must have " + chunkLength + " bytes");
+        }
+
+        if (!session.startWrite()) {
+            throw completing(id);
+        }
+        try {
+            CheckedInputStream checkedInputStream = new CheckedInputStream(inputStream, new CRC32());
+            blobStorageAzure.stageBlock(id, index, checkedInputStream, chunkLength);
+            session.received(index, checkedInputStream.getChecksum().getValue());
+        } finally {
+            session.endWrite();
+        }
+        session.touch();
+        return session.status();
+    }
+
+    /**
+     * Commits all chunks, fails if any of them is missing. The CRC32 of the document is combined from the CRC32 of
+     * its chunks and stored as blob metadata like for other uploads. Waits for chunks being written, if the commit
+     * fails the session can be completed again.
+     */
+    public UploadResult complete(UUID id) throws IOException {
+        UploadSession session = get(id);
+        if (!session.startCompleting()) {
+            throw completing(id);
+        }
+        boolean committed = false;
+        try {
+            UploadSessionStatus status = session.status();
+            if (status.missingChunks() > 0) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, status.missingChunks() + " chunks are missing");
+            }
+            Map<ChecksumAlgorithm, String> checksums = Map.of(ChecksumAlgorithm.CRC32, HexFormat.of().toHexDigits((int) session.crc32()));
+            blobStorageAzure.commitBlocks(id, session.getNumChunks(), ChecksumService.toMetadata(checksums));
+            committed = true;
+            sessions.remove(id, session);
+            log.info("Completed upload session {} with {} bytes", id, session.getLength());
+            return ChecksumService.toUploadResult(session.getLength(), checksums, id, null);
+        } finally {
+            if (!committed) {
+                session.cancelCompleting();
+            }
+        }
+    }
+
+    public void abort(UUID id) {
+        if (sessions.remove(id) == null) {
+            throw notFound(id);
+        }
+        log.info("Aborted upload session {}", id);
+    }
+
+    private UploadSession get(UUID id) {
+        UploadSession session = sessions.get(id);
+        if (session == null) {
+            throw notFound(id);
+        }
+        session.touch();
+        return session;
+    }
+
+    private void expire() {
+        long now = System.nanoTime();
+        long expiryNanos = properties.getExpiry().toNanos();
+        sessions.values().removeIf(session -> now - session.getLastAccessNanos() > expiryNanos);
+    }
+
+    private static ResponseStatusException completing(UUID id) {
+        return new ResponseStatusException(HttpStatus.CONFLICT, "Upload session " + id + " is being or has been completed");
+    }
+
+    private static ResponseStatusException notFound(UUID id) {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown upload session " + id);
+    }
+}
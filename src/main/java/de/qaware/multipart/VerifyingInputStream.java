@@ -0,0 +1,48 @@
+package de.qaware.multipart;
+
+import de.qaware.multipart.common.checksum.ExpectedDigests;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Verifies the announced digests once the end of the stream is reached, the read fails on a mismatch. The stream
+ * has to update the digest itself, so all data is digested when the end is reported.
+ */
+class VerifyingInputStream extends FilterInputStream {
+    private final PartDigest digest;
+    private final ExpectedDigests expected;
+    private boolean verified;
+
+    VerifyingInputStream(InputStream digestingInputStream, PartDigest digest, ExpectedDigests expected) {
+        super(digestingInputStream);
+        this.digest = digest;
+        this.expected = expected;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b < 0) {
+            verify();
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n < 0) {
+            verify();
+        }
+        return n;
+    }
+
+    private void verify() throws IOException {
+        if (!verified) {
+            expected.verify(digest.finish());
+            verified = true;
+        }
+    }
+}
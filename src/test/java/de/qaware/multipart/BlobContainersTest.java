@@ -0,0 +1,74 @@
+package de.qaware.multipart;
+
+import com.azure.storage.blob.BlobContainerClient;
+import com.azure.storage.blob.models.BlobErrorCode;
+import com.azure.storage.blob.models.BlobStorageException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BlobContainersTest {
+    private final Map<String, BlobContainerClient> containers = new LinkedHashMap<>();
+
+    BlobContainersTest() {
+        for (String name : List.of("account1/container1", "account1/container2", "account2/container1")) {
+            BlobContainerClient client = mock(BlobContainerClient.class);
+            when(client.createIfNotExists()).thenReturn(true);
+            containers.put(name, client);
+        }
+    }
+
+    @Test
+    void spreadsDocumentsOverAllContainersById() {
+        BlobContainers blobContainers = new BlobContainers(containers);
+        List<BlobContainerClient> clients = new ArrayList<>(containers.values());
+
+        Set<BlobContainerClient> used = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            UUID id = UUID.randomUUID();
+            BlobContainerClient client = blobContainers.get(id);
+            assertThat(client).isSameAs(clients.get(Math.floorMod(id.hashCode(), clients.size())));
+            assertThat(blobContainers.get(id)).isSameAs(client);
+            used.add(client);
+        }
+        assertThat(used).containsExactlyInAnyOrderElementsOf(clients);
+    }
+
+    @Test
+    void createsContainerOnceUntilItIsMissing() {
+        BlobContainers blobContainers = new BlobContainers(containers);
+        UUID id = UUID.randomUUID();
+        BlobContainerClient client = blobContainers.get(id);
+        blobContainers.get(id);
+        verify(client, times(1)).createIfNotExists();
+
+        blobContainers.failed(id, new IOException("Upload failed", storageException(BlobErrorCode.BLOB_NOT_FOUND)));
+        blobContainers.get(id);
+        verify(client, times(1)).createIfNotExists();
+
+        blobContainers.failed(id, new IOException("Upload failed", storageException(BlobErrorCode.CONTAINER_NOT_FOUND)));
+        blobContainers.get(id);
+        blobContainers.get(id);
+        verify(client, times(2)).createIfNotExists();
+    }
+
+    private static BlobStorageException storageException(BlobErrorCode errorCode) {
+        BlobStorageException e = mock(BlobStorageException.class);
+        when(e.getErrorCode()).thenReturn(errorCode);
+        when(e.getStatusCode()).thenReturn(404);
+        return e;
+    }
+}
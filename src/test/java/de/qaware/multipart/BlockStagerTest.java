@@ -0,0 +1,119 @@
+package de.qaware.multipart;
+
+import com.azure.core.util.Context;
+import com.azure.storage.blob.options.BlockBlobCommitBlockListOptions;
+import com.azure.storage.blob.specialized.BlockBlobClient;
+import de.qaware.multipart.common.BufferPool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BlockStagerTest {
+    private static final int BLOCK_SIZE = 16;
+
+    private final Map<String, byte[]> stagedBlocks = new ConcurrentHashMap<>();
+    private final AtomicReference<BlockBlobCommitBlockListOptions> commit = new AtomicReference<>();
+    private final BlockBlobClient blockBlobClient = mock(BlockBlobClient.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        // In-memory block blob: staged blocks are kept by id, the commit records the block list
+        doAnswer(invocation -> {
+            String blockId = invocation.getArgument(0);
+            InputStream data = invocation.getArgument(1);
+            stagedBlocks.put(blockId, data.readAllBytes());
+            return null;
+        }).when(blockBlobClient).stageBlock(anyString(), any(InputStream.class), anyLong());
+        when(blockBlobClient.commitBlockListWithResponse(any(BlockBlobCommitBlockListOptions.class), any(), any(Context.class)))
+                .thenAnswer(invocation -> {
+                    commit.set(invocation.getArgument(0));
+                    return null;
+                });
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void stagesBlocksInOrderAndCommitsThemWithMetadata() throws IOException {
+        byte[] data = new byte[3 * BLOCK_SIZE + 5];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        AtomicInteger blocksWhenMetadataRequested = new AtomicInteger();
+
+        long numBytes = blockStager().stage(new ByteArrayInputStream(data), () -> {
+            blocksWhenMetadataRequested.set(stagedBlocks.size());
+            return Map.of("checksum_crc32", "0badf00d");
+        });
+
+        assertThat(numBytes).isEqualTo(data.length);
+        List<String> blockIds = commit.get().getBase64BlockIds();
+        assertThat(blockIds).hasSize(4);
+        for (int i = 0; i < blockIds.size(); i++) {
+            assertThat(new String(Base64.getDecoder().decode(blockIds.get(i)), StandardCharsets.US_ASCII))
+                    .isEqualTo("%010d".formatted(i));
+        }
+        ByteArrayOutputStream committed = new ByteArrayOutputStream();
+        blockIds.forEach(blockId -> committed.writeBytes(stagedBlocks.get(blockId)));
+        assertThat(committed.toByteArray()).isEqualTo(data);
+        assertThat(commit.get().getMetadata()).containsEntry("checksum_crc32", "0badf00d");
+        assertThat(blocksWhenMetadataRequested.get()).isEqualTo(4);
+    }
+
+    @Test
+    void failedBlockAbortsTheUpload() {
+        doAnswer(invocation -> {
+            throw new IllegalStateException("Staging failed");
+        }).when(blockBlobClient).stageBlock(eq(BlockStager.blockId(1)), any(InputStream.class), anyLong());
+
+        assertThatThrownBy(() -> blockStager().stage(new ByteArrayInputStream(new byte[10 * BLOCK_SIZE]), Map::of))
+                .isInstanceOf(IOException.class)
+                .hasRootCauseMessage("Staging failed");
+        assertThat(commit.get()).isNull();
+    }
+
+    private BlockStager blockStager() {
+        BufferPool bufferPool = new BufferPool(16L * BLOCK_SIZE, BLOCK_SIZE, BLOCK_SIZE, false, Duration.ofSeconds(1));
+        return new BlockStager(
+                blockBlobClient,
+                bufferPool,
+                BLOCK_SIZE,
+                2,
+                executor,
+                meterRegistry.timer("blob.stage.block"),
+                meterRegistry.timer("blob.commit")
+        );
+    }
+}